@@ -3,6 +3,7 @@ package chuan.study.cloud.common;
 import java.time.LocalDate;
 import java.time.ZoneOffset;
 import java.util.Date;
+import java.util.UUID;
 
 /**
  * @author Jiang Chuan
@@ -15,6 +16,11 @@ public interface Constants {
      */
     Date SYSTEM_START_TIME = new Date();
 
+    /**
+     * 当前实例的唯一标识，每次启动重新生成
+     */
+    String INSTANCE_ID = UUID.randomUUID().toString().replace("-", "");
+
     /**
      * 时间戳差值的起点
      */
@@ -68,4 +74,9 @@ public interface Constants {
      * 测试 Kafka Topic
      */
     String KAFKA_TOPIC_NAME = "chuan-study";
+
+    /**
+     * 区域数据刷新通知 Topic
+     */
+    String KAFKA_AREA_REFRESHED_TOPIC_NAME = "chuan-study_area-refreshed";
 }
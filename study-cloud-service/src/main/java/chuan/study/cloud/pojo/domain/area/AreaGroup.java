@@ -0,0 +1,105 @@
+package chuan.study.cloud.pojo.domain.area;
+
+import chuan.study.cloud.pojo.model.Area;
+import chuan.study.cloud.util.NumberUtils;
+import com.google.common.collect.ImmutableList;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 一组按ID排序的区域，并预先按级别拆分好
+ * <p>
+ * 快照构建时生成，查询时直接返回对应级别的不可变列表，不再过滤和排序；
+ * 每个级别对应的树也同时生成，接口返回树时不再逐次创建节点。
+ *
+ * @author Jiang Chuan
+ * @version 1.0.0
+ * @since 2019-08-28
+ */
+public final class AreaGroup {
+    /**
+     * 空分组
+     */
+    public static final AreaGroup EMPTY = new AreaGroup(null, new int[0], new int[0], null);
+
+    private final List<Area> areas;
+    private final List<List<Area>> byLevel;
+    private final List<AreaNode> tree;
+    private final List<List<AreaNode>> treeByLevel;
+
+    /**
+     * @param store     区域存储
+     * @param positions 分组中区域的下标，下标顺序即ID顺序
+     * @param levels    所有区域的级别，按下标存放，没有级别时为 0
+     * @param trees     生成树的工具，为 null 时不生成树
+     */
+    AreaGroup(AreaStore store, int[] positions, int[] levels, AreaTreeBuilder trees) {
+        int[] sorted = positions.clone();
+        Arrays.sort(sorted);
+
+        int maxLevel = 0;
+        for (int position : sorted) {
+            maxLevel = Math.max(maxLevel, levels[position]);
+        }
+
+        int[] counts = new int[maxLevel + 1];
+        for (int position : sorted) {
+            counts[Math.max(levels[position], 0)]++;
+        }
+
+        ImmutableList.Builder<List<Area>> builder = ImmutableList.builder();
+        ImmutableList.Builder<List<AreaNode>> treeBuilder = ImmutableList.builder();
+        for (int level = 0; level <= maxLevel; level++) {
+            if (level == 0 || counts[level] == 0) {
+                builder.add(ImmutableList.of());
+                treeBuilder.add(ImmutableList.of());
+                continue;
+            }
+
+            int index = 0;
+            int[] levelPositions = new int[counts[level]];
+            for (int position : sorted) {
+                if (levels[position] == level) {
+                    levelPositions[index++] = position;
+                }
+            }
+            builder.add(new AreaList(store, levelPositions));
+            treeBuilder.add(null == trees ? ImmutableList.of() : trees.build(levelPositions));
+        }
+
+        this.areas = sorted.length == 0 ? ImmutableList.of() : new AreaList(store, sorted);
+        this.byLevel = builder.build();
+        this.tree = null == trees ? ImmutableList.of() : trees.build(sorted);
+        this.treeByLevel = treeBuilder.build();
+    }
+
+    /**
+     * @param level 区域级别，为空或不是正数时返回全部
+     * @return 按ID排序的区域列表
+     */
+    public List<Area> get(Integer level) {
+        if (NumberUtils.isNotPositive(level)) {
+            return areas;
+        }
+        return level < byLevel.size() ? byLevel.get(level) : ImmutableList.of();
+    }
+
+    /**
+     * @param level 区域级别，为空或不是正数时返回全部
+     * @return 以最小级别的区域为根、按ID排序的树
+     */
+    public List<AreaNode> getTree(Integer level) {
+        if (NumberUtils.isNotPositive(level)) {
+            return tree;
+        }
+        return level < treeByLevel.size() ? treeByLevel.get(level) : ImmutableList.of();
+    }
+
+    /**
+     * @return 分组中的区域数量
+     */
+    public int size() {
+        return areas.size();
+    }
+}
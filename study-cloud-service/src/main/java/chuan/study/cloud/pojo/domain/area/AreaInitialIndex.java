@@ -0,0 +1,89 @@
+package chuan.study.cloud.pojo.domain.area;
+
+import chuan.study.cloud.pojo.model.Area;
+import com.google.common.collect.ImmutableList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 按拼音首字母对同一上级的下级区域分组，根据地址匹配区域时只需要转换查询的名称
+ * <p>
+ * 分组的键由上级下标和大写首字母组成，所有省份另外作为一个分组；
+ * 不重复的键升序存放在 {@code keys} 中，第 i 个键的区域为 {@code positions[offsets[i] .. offsets[i + 1])}，按ID升序。
+ * 维护的首字母与读音首字母不同时（多音字），区域同时出现在两个分组中。
+ *
+ * @author Jiang Chuan
+ * @version 1.0.0
+ * @since 2019-08-28
+ */
+final class AreaInitialIndex {
+    /**
+     * 省份分组使用的上级下标
+     */
+    static final int PROVINCES = -1;
+
+    private final AreaStore store;
+    private final long[] keys;
+    private final int[] offsets;
+    private final int[] positions;
+
+    /**
+     * @param store    区域存储
+     * @param parents  每个下标的上级下标，没有上级时为 {@link chuan.study.cloud.util.IntHashIndex#NOT_FOUND}
+     * @param levels   每个下标的级别，1 级区域加入省份分组
+     * @param initials 每个下标的大写首字母，为 null 的区域不分组
+     */
+    AreaInitialIndex(AreaStore store, int[] parents, int[] levels, char[][] initials) {
+        // 按下标顺序加入，每个分组内自然按ID升序
+        Map<Long, List<Integer>> buckets = new TreeMap<>();
+        for (int i = 0; i < initials.length; i++) {
+            if (null == initials[i]) {
+                continue;
+            }
+            for (char initial : initials[i]) {
+                if (parents[i] >= 0) {
+                    buckets.computeIfAbsent(toKey(parents[i], initial), k -> new ArrayList<>()).add(i);
+                }
+                if (1 == levels[i]) {
+                    buckets.computeIfAbsent(toKey(PROVINCES, initial), k -> new ArrayList<>()).add(i);
+                }
+            }
+        }
+
+        int keyIndex = 0;
+        int positionIndex = 0;
+        this.store = store;
+        this.keys = new long[buckets.size()];
+        this.offsets = new int[buckets.size() + 1];
+        this.positions = new int[buckets.values().stream().mapToInt(List::size).sum()];
+        for (Map.Entry<Long, List<Integer>> bucket : buckets.entrySet()) {
+            keys[keyIndex] = bucket.getKey();
+            offsets[keyIndex++] = positionIndex;
+            for (Integer position : bucket.getValue()) {
+                positions[positionIndex++] = position;
+            }
+        }
+        offsets[keyIndex] = positionIndex;
+    }
+
+    /**
+     * @param parent  上级下标，查询省份时为 {@link #PROVINCES}
+     * @param initial 大写首字母
+     * @return 分组中的区域，按ID排序
+     */
+    List<Area> get(int parent, char initial) {
+        int index = Arrays.binarySearch(keys, toKey(parent, initial));
+        if (index < 0) {
+            return ImmutableList.of();
+        }
+        return new AreaList(store, positions, offsets[index], offsets[index + 1]);
+    }
+
+    private static long toKey(int parent, char initial) {
+        return ((long) parent << Character.SIZE) | initial;
+    }
+}
@@ -0,0 +1,63 @@
+package chuan.study.cloud.pojo.domain.area;
+
+import chuan.study.cloud.pojo.model.Area;
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+/**
+ * 按字符串字段查询区域的有序索引，支持完全匹配和前缀匹配
+ * <p>
+ * 键和区域下标存放在 {@link AreaKeyTable} 中，不重复的键按字节序排列，同一个键内按ID升序。
+ * 以同一前缀开头的键是连续的，所以两种查询都只需要二分查找，返回的是下标数组上的视图。
+ *
+ * @author Jiang Chuan
+ * @version 1.0.0
+ * @since 2019-08-28
+ */
+final class AreaKeyIndex {
+    private final AreaStore store;
+    private final AreaKeyTable table;
+
+    /**
+     * @param store 区域存储
+     * @param keyOf 每个下标对应的键，为 null 的区域不建索引
+     */
+    AreaKeyIndex(AreaStore store, String[] keyOf) {
+        // 按下标顺序添加，键相同时保持ID的升序
+        AreaKeyTable.Builder builder = AreaKeyTable.builder();
+        for (int i = 0; i < keyOf.length; i++) {
+            if (null != keyOf[i]) {
+                builder.add(keyOf[i], i);
+            }
+        }
+        this.store = store;
+        this.table = builder.build();
+    }
+
+    /**
+     * @param key 键
+     * @return 键完全相同的区域，按ID排序
+     */
+    List<Area> get(String key) {
+        int index = table.indexOf(AreaKeyTable.encode(key));
+        if (index == AreaKeyTable.NOT_FOUND) {
+            return ImmutableList.of();
+        }
+        return new AreaList(store, table.values(), table.valueOffset(index), table.valueOffset(index + 1));
+    }
+
+    /**
+     * @param prefix 前缀
+     * @return 键以该前缀开头的区域，先按键再按ID排序
+     */
+    List<Area> getByPrefix(String prefix) {
+        byte[] bytes = AreaKeyTable.encode(prefix);
+        int from = table.lowerBound(bytes);
+        int to = table.prefixEnd(bytes);
+        if (from >= to) {
+            return ImmutableList.of();
+        }
+        return new AreaList(store, table.values(), table.valueOffset(from), table.valueOffset(to));
+    }
+}
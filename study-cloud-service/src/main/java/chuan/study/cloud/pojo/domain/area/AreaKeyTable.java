@@ -0,0 +1,201 @@
+package chuan.study.cloud.pojo.domain.area;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 有序的字符串键表，每个键对应一组整数值，供各个按字符串查询的索引共用
+ * <p>
+ * 不重复的键按 UTF-8 字节的无符号字典序（即码点顺序）排列，依次写入同一个 byte[]，
+ * 第 k 个键为 {@code bytes[keyOffsets[k] .. keyOffsets[k + 1])}，对应的值为 {@code values[valueOffsets[k] .. valueOffsets[k + 1])}，
+ * 同一个键的值保持添加顺序。快照常驻的只有这几个数组，不保留任何键的 String 对象。
+ * <p>
+ * 以同一前缀开头的键在字节序中是连续的，完全匹配和前缀匹配都只需要二分查找。
+ *
+ * @author Jiang Chuan
+ * @version 1.0.0
+ * @since 2019-08-28
+ */
+final class AreaKeyTable {
+    /**
+     * 查不到键时的返回值
+     */
+    static final int NOT_FOUND = -1;
+
+    private final byte[] bytes;
+    private final int[] keyOffsets;
+    private final int[] valueOffsets;
+    private final int[] values;
+
+    private AreaKeyTable(byte[] bytes, int[] keyOffsets, int[] valueOffsets, int[] values) {
+        this.bytes = bytes;
+        this.keyOffsets = keyOffsets;
+        this.valueOffsets = valueOffsets;
+        this.values = values;
+    }
+
+    static Builder builder() {
+        return new Builder();
+    }
+
+    static byte[] encode(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return 不重复的键的数量
+     */
+    int size() {
+        return keyOffsets.length - 1;
+    }
+
+    /**
+     * @return 所有键的值，按键排列
+     */
+    int[] values() {
+        return values;
+    }
+
+    /**
+     * @param index 键的序号，可以等于键的数量
+     * @return 该键第一个值在 {@link #values()} 中的下标
+     */
+    int valueOffset(int index) {
+        return valueOffsets[index];
+    }
+
+    /**
+     * @return 第 index 个键的字节长度
+     */
+    int length(int index) {
+        return keyOffsets[index + 1] - keyOffsets[index];
+    }
+
+    /**
+     * @return 第 index 个键的第 i 个字节，按无符号数返回
+     */
+    int byteAt(int index, int i) {
+        return bytes[keyOffsets[index] + i] & 0xFF;
+    }
+
+    /**
+     * @return 与 key 完全相同的键的序号，没有时返回 {@link #NOT_FOUND}
+     */
+    int indexOf(byte[] key) {
+        int index = lowerBound(key);
+        return index < size() && compare(index, key, Integer.MAX_VALUE) == 0 ? index : NOT_FOUND;
+    }
+
+    /**
+     * @return 第一个不小于 key 的键的序号，都小于时返回键的数量
+     */
+    int lowerBound(byte[] key) {
+        int low = 0;
+        int high = size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compare(middle, key, Integer.MAX_VALUE) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return 第一个既大于 prefix 又不以 prefix 开头的键的序号，与 {@link #lowerBound(byte[])} 一起确定前缀范围
+     */
+    int prefixEnd(byte[] prefix) {
+        int low = 0;
+        int high = size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compare(middle, prefix, prefix.length) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 比较第 index 个键的前 limit 个字节与 key
+     */
+    private int compare(int index, byte[] key, int limit) {
+        int offset = keyOffsets[index];
+        int length = Math.min(keyOffsets[index + 1] - offset, limit);
+        return compare(bytes, offset, length, key, 0, key.length);
+    }
+
+    private static int compare(byte[] a, int aOffset, int aLength, byte[] b, int bOffset, int bLength) {
+        int length = Math.min(aLength, bLength);
+        for (int i = 0; i < length; i++) {
+            int diff = (a[aOffset + i] & 0xFF) - (b[bOffset + i] & 0xFF);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return aLength - bLength;
+    }
+
+    /**
+     * 收集 (键, 值)，生成时按键稳定排序并合并相同的键，构建完成后即丢弃
+     */
+    static final class Builder {
+        private final List<byte[]> keys = new ArrayList<>();
+        private int[] values = new int[64];
+
+        private Builder() {
+        }
+
+        Builder add(String key, int value) {
+            if (keys.size() == values.length) {
+                values = Arrays.copyOf(values, values.length * 2);
+            }
+            values[keys.size()] = value;
+            keys.add(encode(key));
+            return this;
+        }
+
+        AreaKeyTable build() {
+            int count = keys.size();
+            Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            // 排序是稳定的，键相同时保持添加顺序
+            Arrays.sort(order, (a, b) -> {
+                byte[] x = keys.get(a);
+                byte[] y = keys.get(b);
+                return compare(x, 0, x.length, y, 0, y.length);
+            });
+
+            int keyCount = 0;
+            int byteCount = 0;
+            byte[] previous = null;
+            int[] keyOffsetArray = new int[count + 1];
+            int[] valueOffsetArray = new int[count + 1];
+            int[] valueArray = new int[count];
+            byte[] byteArray = new byte[keys.stream().mapToInt(key -> key.length).sum()];
+            for (int i = 0; i < count; i++) {
+                byte[] key = keys.get(order[i]);
+                if (null == previous || !Arrays.equals(previous, key)) {
+                    System.arraycopy(key, 0, byteArray, byteCount, key.length);
+                    keyOffsetArray[keyCount] = byteCount;
+                    valueOffsetArray[keyCount++] = i;
+                    byteCount += key.length;
+                    previous = key;
+                }
+                valueArray[i] = values[order[i]];
+            }
+            keyOffsetArray[keyCount] = byteCount;
+            valueOffsetArray[keyCount] = count;
+            return new AreaKeyTable(Arrays.copyOf(byteArray, byteCount), Arrays.copyOf(keyOffsetArray, keyCount + 1),
+                    Arrays.copyOf(valueOffsetArray, keyCount + 1), valueArray);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package chuan.study.cloud.pojo.domain.area;
+
+import chuan.study.cloud.pojo.model.Area;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * 按下标引用快照中区域的只读列表
+ *
+ * @author Jiang Chuan
+ * @version 1.0.0
+ * @since 2019-08-28
+ */
+final class AreaList extends AbstractList<Area> implements RandomAccess {
+    private final AreaStore store;
+
+    /**
+     * 区域下标，为 null 时表示 [from, to) 本身就是下标
+     */
+    private final int[] positions;
+    private final int from;
+    private final int to;
+
+    AreaList(AreaStore store, int[] positions) {
+        this(store, positions, 0, positions.length);
+    }
+
+    AreaList(AreaStore store, int[] positions, int from, int to) {
+        this.store = store;
+        this.positions = positions;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * @return 包含存储中所有区域的列表
+     */
+    static AreaList all(AreaStore store) {
+        return new AreaList(store, null, 0, store.size());
+    }
+
+    @Override
+    public Area get(int index) {
+        if (index < 0 || index >= to - from) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        return store.get(null == positions ? from + index : positions[from + index]);
+    }
+
+    @Override
+    public int size() {
+        return to - from;
+    }
+}
@@ -0,0 +1,73 @@
+package chuan.study.cloud.pojo.domain.area;
+
+import chuan.study.cloud.util.IntHashIndex;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 按归一后的名称查找同一上级下的区域，名称的归一规则见 {@link AreaNameNormalizer}
+ * <p>
+ * 每个归一后的名称对应一组 (上级下标, 区域下标)，按ID升序；所有省份另外以 {@link #PROVINCES} 作为上级。
+ * 重名的区域很少，查找时一次哈希后在很短的数组中比较上级即可。
+ * 解析地址时名称完全匹配是最常见的情况，因此这里保留哈希表，不使用按字节二分查找的 {@link AreaKeyTable}。
+ *
+ * @author Jiang Chuan
+ * @version 1.0.0
+ * @since 2019-08-28
+ */
+final class AreaNameIndex {
+    /**
+     * 省份使用的上级下标
+     */
+    static final int PROVINCES = -1;
+
+    private final Map<String, int[]> entries = new HashMap<>();
+
+    /**
+     * @param store   区域存储
+     * @param parents 每个下标的上级下标，没有上级时为 {@link IntHashIndex#NOT_FOUND}
+     * @param levels  每个下标的级别，1 级区域同时加入省份
+     */
+    AreaNameIndex(AreaStore store, int[] parents, int[] levels) {
+        for (int i = 0; i < store.size(); i++) {
+            String name = AreaNameNormalizer.normalize(store.getName(i));
+            if (null == name) {
+                continue;
+            }
+            if (parents[i] != IntHashIndex.NOT_FOUND) {
+                add(name, parents[i], i);
+            }
+            if (1 == levels[i]) {
+                add(name, PROVINCES, i);
+            }
+        }
+    }
+
+    /**
+     * @param parent 上级下标，查找省份时为 {@link #PROVINCES}
+     * @param name   区域名称，查找前同样归一
+     * @return 归一后名称相同的第一个区域的下标，没有时返回 {@link IntHashIndex#NOT_FOUND}
+     */
+    int get(int parent, String name) {
+        String normalized = AreaNameNormalizer.normalize(name);
+        int[] pairs = null == normalized ? null : entries.get(normalized);
+        if (null != pairs) {
+            for (int i = 0; i < pairs.length; i += 2) {
+                if (pairs[i] == parent) {
+                    return pairs[i + 1];
+                }
+            }
+        }
+        return IntHashIndex.NOT_FOUND;
+    }
+
+    private void add(String name, int parent, int position) {
+        int[] pairs = entries.get(name);
+        pairs = null == pairs ? new int[2] : Arrays.copyOf(pairs, pairs.length + 2);
+        pairs[pairs.length - 2] = parent;
+        pairs[pairs.length - 1] = position;
+        entries.put(name, pairs);
+    }
+}
@@ -0,0 +1,131 @@
+package chuan.study.cloud.pojo.domain.area;
+
+import chuan.study.cloud.util.StringUtils;
+import com.google.common.collect.ImmutableSet;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Set;
+
+/**
+ * 区域名称归一：去掉空白、繁体转简体、去掉行政区划后缀
+ * <p>
+ * 例如 "广西壮族自治区"、"廣西" 都归一为 "广西"，"黔东南苗族侗族自治州" 归一为 "黔东南"。
+ * 后缀只去掉最长的一个，去掉后至少保留两个字，避免 "城区"、"广州" 这类名称变成单字；
+ * 去掉的是民族自治后缀时，再依次去掉前面的民族名称。
+ * 每次解析地址都会调用，除了结果字符串和一个 StringBuilder 之外不再分配对象。
+ *
+ * @author Jiang Chuan
+ * @version 1.0.0
+ * @since 2019-08-28
+ */
+final class AreaNameNormalizer {
+    /**
+     * 地名中常见的繁体字及对应的简体字，按位置一一对应
+     */
+    private static final String TRADITIONAL = "廣東龍陽灣門臺縣區蘇嶺島寧雲貴陝遼齊爾濱瀋烏魯維壯內張漢鄭開莊橋興華關陰鐵歸滿豐義鄉鎮澤濟灤滄錦撫營盤瀘貢達渾頭潯寶韓瀏陸順會雙長紅湯萊濰臨棗鄒樂連無錫鹽揚蕪銅馬黃廈閩贛潛隨荊峽嶽婁懷羅靈欽賀瓊瀾麗畢銀衛蘭涼崗鶴雞綿歷溫紹餘蒼鄖鄲慶滎淶駐葉遷樓灘陳劉楊趙吳龜鳳岡崑嶗鄰單貝滬蘆蕭鷹饒騰衝沖淩晉運軍渦潁績譙澠凱";
+    private static final String SIMPLIFIED = "广东龙阳湾门台县区苏岭岛宁云贵陕辽齐尔滨沈乌鲁维壮内张汉郑开庄桥兴华关阴铁归满丰义乡镇泽济滦沧锦抚营盘泸贡达浑头浔宝韩浏陆顺会双长红汤莱潍临枣邹乐连无锡盐扬芜铜马黄厦闽赣潜随荆峡岳娄怀罗灵钦贺琼澜丽毕银卫兰凉岗鹤鸡绵历温绍余苍郧郸庆荥涞驻叶迁楼滩陈刘杨赵吴龟凤冈昆崂邻单贝沪芦萧鹰饶腾冲冲凌晋运军涡颍绩谯渑凯";
+
+    /**
+     * 行政区划后缀，按长度从长到短匹配
+     */
+    private static final String[] SUFFIXES = sortByLength(
+            "特别行政区", "自治区", "自治州", "自治县", "自治旗", "地区", "新区", "林区", "省", "市", "区", "县", "州", "盟", "旗");
+
+    /**
+     * 去掉这些后缀后还需要去掉前面的民族名称
+     */
+    private static final Set<String> AUTONOMOUS_SUFFIXES = ImmutableSet.of("自治区", "自治州", "自治县", "自治旗");
+
+    /**
+     * 民族名称（已包含 "族" 字），按长度从长到短匹配
+     */
+    private static final String[] NATIONALITIES = sortByLength(
+            "蒙古族", "回族", "藏族", "维吾尔族", "苗族", "彝族", "壮族", "布依族", "朝鲜族", "满族", "侗族", "瑶族", "白族",
+            "土家族", "哈尼族", "哈萨克族", "傣族", "黎族", "傈僳族", "佤族", "畲族", "高山族", "拉祜族", "水族", "东乡族",
+            "纳西族", "景颇族", "柯尔克孜族", "土族", "达斡尔族", "仫佬族", "羌族", "布朗族", "撒拉族", "毛南族", "仡佬族",
+            "锡伯族", "阿昌族", "普米族", "塔吉克族", "怒族", "乌孜别克族", "俄罗斯族", "鄂温克族", "德昂族", "保安族",
+            "裕固族", "京族", "塔塔尔族", "独龙族", "鄂伦春族", "赫哲族", "门巴族", "珞巴族", "基诺族", "各族");
+
+    /**
+     * 排序后的繁体字，以及对应位置的简体字，查找时二分查找，不装箱
+     */
+    private static final char[] TRADITIONAL_CHARS = new char[TRADITIONAL.length()];
+    private static final char[] SIMPLIFIED_CHARS = new char[TRADITIONAL.length()];
+
+    static {
+        Integer[] order = new Integer[TRADITIONAL.length()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingInt(TRADITIONAL::charAt));
+        for (int i = 0; i < order.length; i++) {
+            TRADITIONAL_CHARS[i] = TRADITIONAL.charAt(order[i]);
+            SIMPLIFIED_CHARS[i] = SIMPLIFIED.charAt(order[i]);
+        }
+    }
+
+    private AreaNameNormalizer() {
+    }
+
+    /**
+     * @param name 区域名称
+     * @return 归一后的名称，名称为空时返回 null
+     */
+    static String normalize(String name) {
+        if (StringUtils.isBlank(name)) {
+            return null;
+        }
+
+        StringBuilder builder = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char ch = name.charAt(i);
+            if (!Character.isWhitespace(ch)) {
+                int index = Arrays.binarySearch(TRADITIONAL_CHARS, ch);
+                builder.append(index < 0 ? ch : SIMPLIFIED_CHARS[index]);
+            }
+        }
+
+        String suffix = findSuffix(builder, SUFFIXES);
+        if (null != suffix) {
+            builder.setLength(builder.length() - suffix.length());
+            if (AUTONOMOUS_SUFFIXES.contains(suffix)) {
+                for (String nationality = findSuffix(builder, NATIONALITIES); null != nationality;
+                     nationality = findSuffix(builder, NATIONALITIES)) {
+                    builder.setLength(builder.length() - nationality.length());
+                }
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @return 去掉后至少保留两个字的最长后缀，没有时返回 null
+     */
+    private static String findSuffix(StringBuilder name, String[] suffixes) {
+        for (String suffix : suffixes) {
+            if (name.length() - suffix.length() >= 2 && endsWith(name, suffix)) {
+                return suffix;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 逐字比较，不截取子串
+     */
+    private static boolean endsWith(StringBuilder name, String suffix) {
+        int offset = name.length() - suffix.length();
+        for (int i = 0; i < suffix.length(); i++) {
+            if (name.charAt(offset + i) != suffix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String[] sortByLength(String... values) {
+        Arrays.sort(values, Comparator.comparingInt(String::length).reversed());
+        return values;
+    }
+}
@@ -0,0 +1,77 @@
+package chuan.study.cloud.pojo.domain.area;
+
+import chuan.study.cloud.pojo.model.Area;
+import chuan.study.cloud.pojo.vo.AreaVO;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 城市树的节点，快照构建时生成，不可修改
+ * <p>
+ * 没有下级的节点在同一个快照中只有一份，被各个分组的树共享；序列化结果与 AreaVO 相同。
+ *
+ * @author Jiang Chuan
+ * @version 1.0.0
+ * @since 2019-08-28
+ */
+@JsonSerialize(using = AreaNode.Serializer.class)
+public final class AreaNode {
+    private final AreaStore store;
+    private final int position;
+    private final List<AreaNode> children;
+
+    /**
+     * @param store    区域存储
+     * @param position 区域下标
+     * @param children 下级节点，没有下级时为 null
+     */
+    AreaNode(AreaStore store, int position, List<AreaNode> children) {
+        this.store = store;
+        this.position = position;
+        this.children = children;
+    }
+
+    /**
+     * @return 节点对应的区域
+     */
+    public Area getArea() {
+        return store.get(position);
+    }
+
+    /**
+     * @return 按ID排序的下级节点，没有下级时返回 null
+     */
+    public List<AreaNode> getChildren() {
+        return children;
+    }
+
+    /**
+     * 通过 {@link AreaVO#writeFields} 按 AreaVO 的字段顺序输出，每个节点只读取一次区域
+     */
+    public static final class Serializer extends StdSerializer<AreaNode> {
+        private static final long serialVersionUID = -3504226836585271203L;
+
+        public Serializer() {
+            super(AreaNode.class);
+        }
+
+        @Override
+        public void serialize(AreaNode node, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeStartObject();
+            AreaVO.writeFields(generator, node.getArea());
+            if (null != node.children) {
+                generator.writeArrayFieldStart("children");
+                for (AreaNode child : node.children) {
+                    serialize(child, generator, provider);
+                }
+                generator.writeEndArray();
+            }
+            generator.writeEndObject();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package chuan.study.cloud.pojo.domain.area;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * 区域数据刷新通知，由刷新数据的实例通过 Kafka 广播给其他实例
+ *
+ * @author Jiang Chuan
+ * @version 1.0.0
+ * @since 2019-08-28
+ */
+@Data
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class AreaRefreshMessage {
+    /**
+     * 发出通知的实例
+     */
+    private String instanceId;
+
+    /**
+     * 发送方刷新后的数据版本，见 {@link AreaSnapshot#getVersion()}，接收方当前版本与之相同时不需要加载
+     */
+    private long version;
+
+    /**
+     * 是否需要全量加载
+     */
+    private boolean full;
+}
@@ -0,0 +1,28 @@
+package chuan.study.cloud.pojo.domain.area;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * 区域快照替换完成后发布的事件，用于清理依赖区域数据的缓存
+ *
+ * @author Jiang Chuan
+ * @version 1.0.0
+ * @since 2019-08-28
+ */
+public class AreaRefreshedEvent extends ApplicationEvent {
+    private static final long serialVersionUID = -3279217805236587716L;
+
+    private final transient AreaSnapshot snapshot;
+
+    public AreaRefreshedEvent(Object source, AreaSnapshot snapshot) {
+        super(source);
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * @return 新发布的快照
+     */
+    public AreaSnapshot getSnapshot() {
+        return snapshot;
+    }
+}
@@ -0,0 +1,575 @@
+package chuan.study.cloud.pojo.domain.area;
+
+import chuan.study.cloud.pojo.model.Area;
+import chuan.study.cloud.util.IntHashIndex;
+import chuan.study.cloud.util.StringUtils;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * 区域数据快照
+ * <p>
+ * 所有索引在构建时一次性生成，构建完成后不可修改。刷新时在旁路构建新的快照，
+ * 然后通过一次 volatile 写整体替换，读线程无锁且始终看到一致的数据。
+ * <p>
+ * 区域按ID升序存放在 {@link AreaStore} 中，ID 到下标通过 {@link IntHashIndex} 映射；
+ * 上下级关系采用 CSR 结构：下级区域的下标连续存放在 {@code children} 中，
+ * 第 i 个区域的下级为 {@code children[childOffsets[i] .. childOffsets[i + 1])}，同样按ID升序。
+ * <p>
+ * 按上级、按区号的查询结果也在构建时按级别预先拆分成 {@link AreaGroup}，查询时不再过滤和排序；
+ * 每个区域到最上级的区域链同样在构建时生成，邮编和完整名称建有支持前缀匹配的有序索引，
+ * 名称联想的结果也按前缀预先排好。所有索引只保存下标，返回的列表是按下标读取存储的视图，
+ * 因此可以通过 {@link Builder#compact(boolean)} 换成紧凑存储，而不影响索引本身。
+ *
+ * @author Jiang Chuan
+ * @version 1.0.0
+ * @since 2019-08-28
+ */
+public final class AreaSnapshot {
+    /**
+     * 空快照，用于数据加载之前
+     */
+    public static final AreaSnapshot EMPTY = builder().build();
+
+    /**
+     * 名称联想一次最多返回的区域数量
+     */
+    public static final int MAX_SUGGESTIONS = AreaSuggestIndex.MAX_SIZE;
+
+    /**
+     * 区域数量达到该值时使用并行排序和并行生成分组
+     */
+    private static final int PARALLEL_THRESHOLD = 8192;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final long version;
+    private final AreaStore store;
+    private final IntHashIndex idIndex;
+    private final int[] childOffsets;
+    private final int[] children;
+
+    private final long highWaterMark;
+    private final List<Area> areaList;
+    private final List<Area> provinces;
+    private final AreaGroup[] parentGroups;
+    private final List<List<Area>> chains;
+    private final Map<String, AreaGroup> codeGroups;
+    private final AreaKeyIndex zipCodeIndex;
+    private final AreaKeyIndex mergedNameIndex;
+    private final AreaSuggestIndex suggestIndex;
+    private final AreaInitialIndex initialIndex;
+    private final AreaNameIndex nameIndex;
+    private final Map<String, Long> buildNanos;
+
+    private AreaSnapshot(Builder builder) {
+        Map<String, Long> timings = new LinkedHashMap<>();
+        long mark = System.nanoTime();
+
+        // 存储构建器在添加时已经收集了所有行，这里按ID排序并去重，保证下标顺序即ID顺序
+        boolean parallel = builder.rows.size() >= PARALLEL_THRESHOLD;
+        this.store = builder.rows.build(parallel);
+        int count = store.size();
+        IntHashIndex index = new IntHashIndex(count);
+        for (int i = 0; i < count; i++) {
+            index.put(store.getId(i), i);
+        }
+        this.idIndex = index;
+        mark = lap(timings, "store", mark);
+
+        this.version = hash(store);
+        mark = lap(timings, "version", mark);
+
+        // 一次遍历得到级别、上级下标、省份、区号分组和更新时间，并统计每个上级的下级数量
+        long maxUpdatedTime = 0;
+        int[] levels = new int[count];
+        int[] parents = new int[count];
+        int[] offsets = new int[count + 1];
+        List<Integer> provincePositions = new ArrayList<>();
+        Map<String, List<Integer>> codeMap = new HashMap<>();
+        String[] zipCodes = new String[count];
+        String[] mergedNames = new String[count];
+        for (int i = 0; i < count; i++) {
+            int level = store.getLevel(i);
+            int parentId = store.getParentId(i);
+            levels[i] = level > 0 ? level : 0;
+            parents[i] = parentId > 0 ? index.get(parentId) : IntHashIndex.NOT_FOUND;
+            if (parents[i] != IntHashIndex.NOT_FOUND) {
+                offsets[parents[i] + 1]++;
+            }
+            maxUpdatedTime = Math.max(maxUpdatedTime, store.getUpdatedTime(i));
+            if (1 == levels[i]) {
+                provincePositions.add(i);
+            }
+            String cityCode = store.getCityCode(i);
+            if (StringUtils.isNotBlank(cityCode)) {
+                codeMap.computeIfAbsent(cityCode, k -> new ArrayList<>()).add(i);
+            }
+            zipCodes[i] = StringUtils.trimToNull(store.getZipCode(i));
+            mergedNames[i] = StringUtils.trimToNull(store.getMergedName(i));
+        }
+
+        // 通过前缀和得到偏移量
+        for (int i = 0; i < count; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+
+        int[] cursors = Arrays.copyOf(offsets, count);
+        int[] childArray = new int[offsets[count]];
+        for (int i = 0; i < count; i++) {
+            if (parents[i] != IntHashIndex.NOT_FOUND) {
+                childArray[cursors[parents[i]]++] = i;
+            }
+        }
+        this.childOffsets = offsets;
+        this.children = childArray;
+        mark = lap(timings, "index", mark);
+
+        // 上级分组包含上级自己和所有直接下级，各个分组互不依赖，数据量大时并行生成
+        AreaTreeBuilder trees = new AreaTreeBuilder(store, parents);
+        AreaGroup[] groups = new AreaGroup[count];
+        IntStream groupRange = IntStream.range(0, count);
+        (parallel ? groupRange.parallel() : groupRange).forEach(i -> {
+            if (offsets[i] < offsets[i + 1]) {
+                int[] members = Arrays.copyOfRange(childArray, offsets[i], offsets[i + 1] + 1);
+                members[members.length - 1] = i;
+                groups[i] = new AreaGroup(store, members, levels, trees);
+            }
+        });
+        this.parentGroups = groups;
+        mark = lap(timings, "parentGroups", mark);
+
+        // 区域链：下级直接复用上级已生成的链
+        int[][] chainPositions = new int[count][];
+        List<List<Area>> chainList = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int[] chain = buildChain(i, store, levels, parents, chainPositions);
+            chainList.add(chain.length == 0 ? ImmutableList.of() : new AreaList(store, chain));
+        }
+        this.chains = chainList;
+        mark = lap(timings, "chains", mark);
+
+        ImmutableMap.Builder<String, AreaGroup> codeGroupBuilder = ImmutableMap.builder();
+        codeMap.forEach((code, positions) -> codeGroupBuilder.put(code, new AreaGroup(store, toArray(positions), levels, trees)));
+
+        this.highWaterMark = maxUpdatedTime;
+        this.areaList = AreaList.all(store);
+        this.provinces = provincePositions.isEmpty() ? ImmutableList.of() : new AreaList(store, toArray(provincePositions));
+        this.codeGroups = codeGroupBuilder.build();
+        mark = lap(timings, "codeGroups", mark);
+
+        this.zipCodeIndex = new AreaKeyIndex(store, zipCodes);
+        this.mergedNameIndex = new AreaKeyIndex(store, mergedNames);
+        mark = lap(timings, "keyIndexes", mark);
+
+        String[][] pinyins = toPinyins(store, parallel);
+        mark = lap(timings, "pinyin", mark);
+
+        this.suggestIndex = new AreaSuggestIndex(store, toSuggestKeys(pinyins), levels);
+        this.initialIndex = new AreaInitialIndex(store, parents, levels, toInitials(store, pinyins));
+        this.nameIndex = new AreaNameIndex(store, parents, levels);
+        lap(timings, "nameIndexes", mark);
+        this.buildNanos = ImmutableMap.copyOf(timings);
+    }
+
+    /**
+     * @return 快照构建器
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return 快照版本，由全部区域的内容计算得到：数据相同则版本相同，与实例、构建次数和存储方式无关，可用于缓存的键和 ETag
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return 构建快照时各阶段的耗时（纳秒），按执行顺序排列
+     */
+    public Map<String, Long> getBuildNanos() {
+        return buildNanos;
+    }
+
+    /**
+     * @return 区域总数
+     */
+    public int size() {
+        return store.size();
+    }
+
+    /**
+     * @return 快照中最大的更新时间，用于增量刷新；没有更新时间时返回 null
+     */
+    public Date getHighWaterMark() {
+        return highWaterMark > 0 ? new Date(highWaterMark) : null;
+    }
+
+    /**
+     * @return 按ID排序的所有区域
+     */
+    public List<Area> getAreas() {
+        return areaList;
+    }
+
+    /**
+     * @param id 区域ID
+     * @return 区域详情，不存在时返回 null
+     */
+    public Area getArea(int id) {
+        int position = idIndex.get(id);
+        return position == IntHashIndex.NOT_FOUND ? null : store.get(position);
+    }
+
+    /**
+     * @param area 区域
+     * @return 快照中是否有ID相同、各个字段（包括更新时间）也都相同的区域，用于增量刷新时跳过没有变化的行
+     */
+    public boolean contains(Area area) {
+        int position = null == area.getId() ? IntHashIndex.NOT_FOUND : idIndex.get(area.getId());
+        return position != IntHashIndex.NOT_FOUND && store.matches(position, area);
+    }
+
+    /**
+     * @return 按ID排序的省份列表
+     */
+    public List<Area> getProvinces() {
+        return provinces;
+    }
+
+    /**
+     * @param parentId 上级ID
+     * @return 按ID排序的直接下级区域，没有时返回空列表
+     */
+    public List<Area> getChildren(int parentId) {
+        int position = idIndex.get(parentId);
+        if (position == IntHashIndex.NOT_FOUND || childOffsets[position] == childOffsets[position + 1]) {
+            return ImmutableList.of();
+        }
+        return new AreaList(store, children, childOffsets[position], childOffsets[position + 1]);
+    }
+
+    /**
+     * @param parentId 上级ID
+     * @return 上级自己及其直接下级，没有下级时返回空分组
+     */
+    public AreaGroup getParentGroup(int parentId) {
+        int position = idIndex.get(parentId);
+        if (position == IntHashIndex.NOT_FOUND || null == parentGroups[position]) {
+            return AreaGroup.EMPTY;
+        }
+        return parentGroups[position];
+    }
+
+    /**
+     * @param areaId 区域ID
+     * @return 从最上级到当前区域、按级别排序的区域链，区域不存在时返回空列表
+     */
+    public List<Area> getChain(int areaId) {
+        int position = idIndex.get(areaId);
+        return position == IntHashIndex.NOT_FOUND ? ImmutableList.of() : chains.get(position);
+    }
+
+    /**
+     * @param cityCode 区号
+     * @return 区号相同的区域，没有时返回空分组
+     */
+    public AreaGroup getCodeGroup(String cityCode) {
+        return codeGroups.getOrDefault(cityCode, AreaGroup.EMPTY);
+    }
+
+    /**
+     * @param zipCode 邮编
+     * @return 邮编相同的区域，按ID排序
+     */
+    public List<Area> getByZipCode(String zipCode) {
+        return zipCodeIndex.get(zipCode);
+    }
+
+    /**
+     * @param prefix 邮编前缀
+     * @return 邮编以该前缀开头的区域，先按邮编再按ID排序
+     */
+    public List<Area> getByZipCodePrefix(String prefix) {
+        return zipCodeIndex.getByPrefix(prefix);
+    }
+
+    /**
+     * @param mergedName 完整名称，如 中国,江苏省,南京市,玄武区
+     * @return 完整名称相同的区域，按ID排序
+     */
+    public List<Area> getByMergedName(String mergedName) {
+        return mergedNameIndex.get(mergedName);
+    }
+
+    /**
+     * @param prefix 完整名称的前缀，如 中国,江苏省,南京市
+     * @return 完整名称以该前缀开头的区域，先按完整名称再按ID排序
+     */
+    public List<Area> getByMergedNamePrefix(String prefix) {
+        return mergedNameIndex.getByPrefix(prefix);
+    }
+
+    /**
+     * @param initial 大写的拼音首字母
+     * @return 首字母相同的省份，按ID排序
+     */
+    public List<Area> getProvincesByInitial(char initial) {
+        return initialIndex.get(AreaInitialIndex.PROVINCES, initial);
+    }
+
+    /**
+     * @param parentId 上级ID
+     * @param initial  大写的拼音首字母
+     * @return 首字母相同的直接下级，按ID排序；上级不存在时返回空列表
+     */
+    public List<Area> getChildrenByInitial(int parentId, char initial) {
+        int position = idIndex.get(parentId);
+        return position == IntHashIndex.NOT_FOUND ? ImmutableList.of() : initialIndex.get(position, initial);
+    }
+
+    /**
+     * 按名称精确查找省份，名称去掉空白和行政区划后缀、繁体转为简体后比较，如 "广西"、"廣西壯族自治區" 都能找到广西
+     *
+     * @param name 省份名称
+     * @return 省份，没有时返回 null
+     */
+    public Area getProvinceByName(String name) {
+        int position = nameIndex.get(AreaNameIndex.PROVINCES, name);
+        return position == IntHashIndex.NOT_FOUND ? null : store.get(position);
+    }
+
+    /**
+     * 按名称精确查找直接下级，名称的比较方式同 {@link #getProvinceByName(String)}
+     *
+     * @param parentId 上级ID
+     * @param name     下级名称
+     * @return 下级区域，没有时返回 null
+     */
+    public Area getChildByName(int parentId, String name) {
+        int parent = idIndex.get(parentId);
+        int position = parent == IntHashIndex.NOT_FOUND ? IntHashIndex.NOT_FOUND : nameIndex.get(parent, name);
+        return position == IntHashIndex.NOT_FOUND ? null : store.get(position);
+    }
+
+    /**
+     * 名称联想
+     *
+     * @param prefix 名称、全拼或拼音首字母的前缀，拼音不区分大小写
+     * @param limit  最多返回的数量，不超过 {@link #MAX_SUGGESTIONS}
+     * @return 匹配的区域，级别小的排在前面，级别相同时按ID排序
+     */
+    public List<Area> getSuggestions(String prefix, int limit) {
+        return suggestIndex.get(prefix.toLowerCase(), limit);
+    }
+
+
+    /**
+     * 生成区域链：没有上级的区域链为空；级别大于 1 且上级存在时，在上级的链中按级别插入自己
+     */
+    private static int[] buildChain(int position, AreaStore store, int[] levels, int[] parents, int[][] chainPositions) {
+        int[] chain = chainPositions[position];
+        if (null != chain) {
+            return chain;
+        }
+
+        if (store.getParentId(position) <= 0) {
+            chain = new int[0];
+        } else {
+            // 先占位，防止数据中出现环
+            chainPositions[position] = new int[0];
+            int[] prefix = levels[position] > 1 && parents[position] != IntHashIndex.NOT_FOUND
+                    ? buildChain(parents[position], store, levels, parents, chainPositions) : new int[0];
+
+            int insertAt = prefix.length;
+            while (insertAt > 0 && levels[prefix[insertAt - 1]] > levels[position]) {
+                insertAt--;
+            }
+            chain = new int[prefix.length + 1];
+            System.arraycopy(prefix, 0, chain, 0, insertAt);
+            chain[insertAt] = position;
+            System.arraycopy(prefix, insertAt, chain, insertAt + 1, prefix.length - insertAt);
+        }
+        chainPositions[position] = chain;
+        return chain;
+    }
+
+    /**
+     * 按ID顺序对所有区域的各个字段计算 64 位 FNV-1a 哈希，字符串按字符参与计算，null 与空字符串通过长度区分
+     */
+    private static long hash(AreaStore store) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < store.size(); i++) {
+            hash = hash(hash, store.getId(i));
+            hash = hash(hash, store.getParentId(i));
+            hash = hash(hash, store.getLevel(i));
+            long updatedTime = store.getUpdatedTime(i);
+            hash = hash(hash, (int) (updatedTime >>> 32));
+            hash = hash(hash, (int) updatedTime);
+            hash = hash(hash, store.getName(i));
+            hash = hash(hash, store.getMergedName(i));
+            hash = hash(hash, store.getInitial(i));
+            hash = hash(hash, store.getCityCode(i));
+            hash = hash(hash, store.getZipCode(i));
+        }
+        return hash;
+    }
+
+    private static long hash(long hash, String value) {
+        if (null == value) {
+            return hash(hash, -1);
+        }
+        hash = hash(hash, value.length());
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static long hash(long hash, int value) {
+        for (int shift = 0; shift < Integer.SIZE; shift += Byte.SIZE) {
+            hash = (hash ^ ((value >>> shift) & 0xFF)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * 记录从 mark 到现在的耗时
+     *
+     * @return 当前时间，作为下一阶段的开始时间
+     */
+    private static long lap(Map<String, Long> timings, String phase, long mark) {
+        long now = System.nanoTime();
+        timings.put(phase, now - mark);
+        return now;
+    }
+
+    /**
+     * 转换每个区域名称的全拼和拼音首字母，名称为空时为 null。
+     * 转换拼音是构建中最耗时的部分，各个区域互不依赖，数据量大时并行转换
+     *
+     * @return 每个下标的 {名称, 全拼, 拼音首字母}
+     */
+    private static String[][] toPinyins(AreaStore store, boolean parallel) {
+        String[][] pinyins = new String[store.size()][];
+        IntStream positions = IntStream.range(0, store.size());
+        (parallel ? positions.parallel() : positions).forEach(i -> {
+            String name = StringUtils.trimToNull(store.getName(i));
+            if (null != name) {
+                pinyins[i] = new String[]{name, StringUtils.chineseToPinyin(name, false), StringUtils.chineseToPinyin(name, true)};
+            }
+        });
+        return pinyins;
+    }
+
+    /**
+     * 联想使用的键：名称、全拼和拼音首字母，拼音为小写
+     */
+    private static String[][] toSuggestKeys(String[][] pinyins) {
+        String[][] keys = new String[pinyins.length][];
+        for (int i = 0; i < pinyins.length; i++) {
+            if (null != pinyins[i]) {
+                keys[i] = Stream.of(pinyins[i])
+                        .filter(StringUtils::isNotEmpty)
+                        .map(String::toLowerCase)
+                        .distinct()
+                        .toArray(String[]::new);
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * 地址匹配使用的首字母：维护的首字母和名称读音的首字母，均为大写
+     */
+    private static char[][] toInitials(AreaStore store, String[][] pinyins) {
+        char[][] initials = new char[store.size()][];
+        for (int i = 0; i < initials.length; i++) {
+            String initial = StringUtils.upperCase(store.getInitial(i));
+            String pinyinInitial = null == pinyins[i] ? null : StringUtils.upperCase(pinyins[i][2]);
+            if (StringUtils.isEmpty(initial)) {
+                initials[i] = StringUtils.isEmpty(pinyinInitial) ? null : new char[]{pinyinInitial.charAt(0)};
+            } else if (StringUtils.isEmpty(pinyinInitial) || initial.charAt(0) == pinyinInitial.charAt(0)) {
+                initials[i] = new char[]{initial.charAt(0)};
+            } else {
+                initials[i] = new char[]{initial.charAt(0), pinyinInitial.charAt(0)};
+            }
+        }
+        return initials;
+    }
+
+    private static int[] toArray(List<Integer> positions) {
+        return positions.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    public static final class Builder {
+        private AreaStore.Builder rows;
+        private boolean compact;
+
+        private Builder() {
+        }
+
+        /**
+         * 使用紧凑存储：字符串以 UTF-8 存放在同一个字节数组中，读取时再生成 {@link Area}。
+         * 必须在添加区域之前设置，添加的区域会立即编码，不会先收集到列表中
+         */
+        public Builder compact(boolean compact) {
+            if (null != rows) {
+                throw new IllegalStateException("已经添加了区域，不能再修改存储方式");
+            }
+            this.compact = compact;
+            return this;
+        }
+
+        public Builder add(Area area) {
+            if (null != area && null != area.getId()) {
+                rows().add(area);
+            }
+            return this;
+        }
+
+        /**
+         * 批量添加，ID相同时后添加的覆盖先添加的
+         */
+        public Builder addAll(Collection<Area> areas) {
+            if (null != areas) {
+                areas.forEach(this::add);
+            }
+            return this;
+        }
+
+        /**
+         * 添加另一个快照中的所有区域，直接读取其存储，可用于在旧快照上合并增量数据
+         */
+        public Builder addAll(AreaSnapshot snapshot) {
+            rows().addAll(snapshot.store);
+            return this;
+        }
+
+        public AreaSnapshot build() {
+            rows();
+            return new AreaSnapshot(this);
+        }
+
+        private AreaStore.Builder rows() {
+            if (null == rows) {
+                rows = compact ? new CompactAreaStore.Builder() : new HeapAreaStore.Builder();
+            }
+            return rows;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package chuan.study.cloud.pojo.domain.area;
+
+import chuan.study.cloud.pojo.model.Area;
+
+import java.util.Objects;
+
+/**
+ * 快照中区域数据的存储，按下标访问，下标顺序即ID顺序
+ * <p>
+ * 除了读取完整的 {@link Area}，也可以按列读取单个字段，构建索引时不必为每个区域生成对象。
+ *
+ * @author Jiang Chuan
+ * @version 1.0.0
+ * @since 2019-08-28
+ */
+interface AreaStore {
+    /**
+     * 整数字段为 null 时按列读取的返回值
+     */
+    int NULL_VALUE = Integer.MIN_VALUE;
+
+    /**
+     * @return 区域数量
+     */
+    int size();
+
+    /**
+     * @param position 下标
+     * @return 对应的区域
+     */
+    Area get(int position);
+
+    /**
+     * @param position 下标
+     * @return 区域ID
+     */
+    int getId(int position);
+
+    /**
+     * @param position 下标
+     * @return 上级ID，为 null 时返回 {@link #NULL_VALUE}
+     */
+    int getParentId(int position);
+
+    /**
+     * @param position 下标
+     * @return 级别，为 null 时返回 {@link #NULL_VALUE}
+     */
+    int getLevel(int position);
+
+    /**
+     * @param position 下标
+     * @return 更新时间的毫秒数，为 null 时返回 0
+     */
+    long getUpdatedTime(int position);
+
+    String getName(int position);
+
+    String getMergedName(int position);
+
+    String getInitial(int position);
+
+    String getCityCode(int position);
+
+    String getZipCode(int position);
+
+    /**
+     * @param position 下标
+     * @param area     区域
+     * @return 下标处的区域与 area 的各个字段（包括更新时间）是否都相同
+     */
+    default boolean matches(int position, Area area) {
+        return getId(position) == area.getId()
+                && getParentId(position) == (null == area.getParentId() ? NULL_VALUE : area.getParentId())
+                && getLevel(position) == (null == area.getLevel() ? NULL_VALUE : area.getLevel())
+                && getUpdatedTime(position) == (null == area.getUpdatedTime() ? 0 : area.getUpdatedTime().getTime())
+                && Objects.equals(getName(position), area.getName())
+                && Objects.equals(getMergedName(position), area.getMergedName())
+                && Objects.equals(getInitial(position), area.getInitial())
+                && Objects.equals(getCityCode(position), area.getCityCode())
+                && Objects.equals(getZipCode(position), area.getZipCode());
+    }
+
+    /**
+     * 逐行接收区域并生成存储，生成时按ID排序，ID相同时后添加的覆盖先添加的
+     */
+    interface Builder {
+        /**
+         * @param area ID不为空的区域
+         */
+        void add(Area area);
+
+        /**
+         * 添加另一个存储中的所有区域，默认逐个读取后添加
+         *
+         * @param store 存储
+         */
+        default void addAll(AreaStore store) {
+            for (int i = 0; i < store.size(); i++) {
+                add(store.get(i));
+            }
+        }
+
+        /**
+         * @return 已添加的行数，包括ID重复的行
+         */
+        int size();
+
+        /**
+         * 生成存储，之后不能再使用该构建器
+         *
+         * @param parallel 是否并行排序
+         * @return 按ID排序、去重后的存储
+         */
+        AreaStore build(boolean parallel);
+    }
+}
@@ -0,0 +1,149 @@
+package chuan.study.cloud.pojo.domain.area;
+
+import chuan.study.cloud.pojo.model.Area;
+import com.google.common.collect.ImmutableList;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 区域名称联想索引，按名称、全拼、首字母的前缀查询，结果按级别排序
+ * <p>
+ * 所有的 (键, 区域下标) 存放在 {@link AreaKeyTable} 中，相当于把按字节展开的前缀树的叶子依次排开：
+ * 同一前缀下的键是连续的一段，通过二分查找定位。一段不超过 {@link #SCAN_LIMIT} 个区域时查询直接在段内挑选；
+ * 更长的段（前缀树中靠近根部的节点）在构建时自底向上合并子节点的结果，预先算好前 {@link #MAX_SIZE} 个区域，
+ * 按这一段键的序号范围保存，不保存前缀字符串。
+ * 因此任何前缀的查询都只需要两次二分查找，再加上最多扫描 {@link #SCAN_LIMIT} 个区域。
+ *
+ * @author Jiang Chuan
+ * @version 1.0.0
+ * @since 2019-08-28
+ */
+final class AreaSuggestIndex {
+    /**
+     * 一次最多返回的区域数量
+     */
+    static final int MAX_SIZE = 20;
+
+    /**
+     * 前缀对应的区域不超过该数量时查询时再挑选，否则使用预先算好的结果
+     */
+    private static final int SCAN_LIMIT = 64;
+
+    private final AreaStore store;
+    private final AreaKeyTable table;
+    private final Comparator<Integer> ranking;
+
+    /**
+     * 键序号范围 [from, to) 编码为 (from << 32 | to) 后对应的结果
+     */
+    private final Map<Long, int[]> topPositions = new HashMap<>();
+
+    /**
+     * @param store  区域存储
+     * @param keyOf  每个下标对应的联想键，为 null 的区域不建索引
+     * @param levels 每个下标的级别，级别小的排在前面，级别相同时按ID排序
+     */
+    AreaSuggestIndex(AreaStore store, String[][] keyOf, int[] levels) {
+        AreaKeyTable.Builder builder = AreaKeyTable.builder();
+        for (int i = 0; i < keyOf.length; i++) {
+            if (null != keyOf[i]) {
+                for (String key : keyOf[i]) {
+                    builder.add(key, i);
+                }
+            }
+        }
+
+        this.store = store;
+        this.table = builder.build();
+        this.ranking = Comparator.<Integer>comparingInt(position -> levels[position]).thenComparingInt(position -> position);
+        buildTop(0, 0, table.size());
+    }
+
+    /**
+     * @param prefix 名称、全拼或首字母的前缀，拼音为小写
+     * @param limit  最多返回的数量，不超过 {@link #MAX_SIZE}
+     * @return 匹配的区域，按级别、ID排序
+     */
+    List<Area> get(String prefix, int limit) {
+        byte[] bytes = AreaKeyTable.encode(prefix);
+        int from = table.lowerBound(bytes);
+        int to = table.prefixEnd(bytes);
+        if (from >= to) {
+            return ImmutableList.of();
+        }
+
+        int[] top = count(from, to) > SCAN_LIMIT ? topPositions.get(range(from, to)) : scan(from, to);
+        return new AreaList(store, top, 0, Math.min(Math.max(limit, 0), top.length));
+    }
+
+    /**
+     * 自底向上生成 [from, to) 这一段的结果，这一段中的键有长度为 depth 个字节的公共前缀。
+     * 同一段键可能对应多个前缀，它们的结果相同，按范围保存一份即可
+     *
+     * @return 这一段中排在前面的区域下标
+     */
+    private int[] buildTop(int depth, int from, int to) {
+        if (count(from, to) <= SCAN_LIMIT) {
+            return scan(from, to);
+        }
+
+        // 长度正好为 depth 的键排在最前面，其余按第 depth 个字节分段
+        List<Integer> candidates = new ArrayList<>();
+        int start = from;
+        while (start < to && table.length(start) == depth) {
+            addPositions(start++, candidates);
+        }
+        while (start < to) {
+            int next = table.byteAt(start, depth);
+            int end = start + 1;
+            while (end < to && table.byteAt(end, depth) == next) {
+                end++;
+            }
+            for (int position : buildTop(depth + 1, start, end)) {
+                candidates.add(position);
+            }
+            start = end;
+        }
+
+        int[] top = select(candidates);
+        topPositions.put(range(from, to), top);
+        return top;
+    }
+
+    private int[] scan(int from, int to) {
+        List<Integer> candidates = new ArrayList<>(count(from, to));
+        for (int i = from; i < to; i++) {
+            addPositions(i, candidates);
+        }
+        return select(candidates);
+    }
+
+    private void addPositions(int index, List<Integer> candidates) {
+        int[] positions = table.values();
+        for (int i = table.valueOffset(index); i < table.valueOffset(index + 1); i++) {
+            candidates.add(positions[i]);
+        }
+    }
+
+    /**
+     * @return 键序号在 [from, to) 中的 (键, 区域下标) 数量
+     */
+    private int count(int from, int to) {
+        return table.valueOffset(to) - table.valueOffset(from);
+    }
+
+    /**
+     * 去掉重复的区域（同一区域的名称和拼音可能同时匹配），按级别、ID排序后取前 {@link #MAX_SIZE} 个
+     */
+    private int[] select(List<Integer> candidates) {
+        return candidates.stream().distinct().sorted(ranking).limit(MAX_SIZE).mapToInt(Integer::intValue).toArray();
+    }
+
+    private static Long range(int from, int to) {
+        return (long) from << 32 | to;
+    }
+}
@@ -0,0 +1,102 @@
+package chuan.study.cloud.pojo.domain.area;
+
+import chuan.study.cloud.util.IntHashIndex;
+import com.google.common.collect.ImmutableList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 快照构建期间把一组区域组织成树，构建完成后即丢弃
+ * <p>
+ * 规则与原来按请求生成的树相同：忽略没有上级ID的区域，级别最小的作为根，
+ * 其余区域挂到同组中的上级下面，上级不在组中的区域不返回；级别为空时按 1 级处理。
+ *
+ * @author Jiang Chuan
+ * @version 1.0.0
+ * @since 2019-08-28
+ */
+final class AreaTreeBuilder {
+    private final AreaStore store;
+    private final int[] parents;
+
+    /**
+     * 没有下级的节点，每个区域一份，被所有树共享
+     */
+    private final AreaNode[] leaves;
+
+    AreaTreeBuilder(AreaStore store, int[] parents) {
+        this.store = store;
+        this.parents = parents;
+        this.leaves = new AreaNode[store.size()];
+        for (int i = 0; i < leaves.length; i++) {
+            leaves[i] = new AreaNode(store, i, null);
+        }
+    }
+
+    /**
+     * @param positions 升序排列的区域下标
+     * @return 按ID排序的根节点
+     */
+    List<AreaNode> build(int[] positions) {
+        int count = 0;
+        int minLevel = Integer.MAX_VALUE;
+        int[] members = new int[positions.length];
+        for (int position : positions) {
+            if (AreaStore.NULL_VALUE != store.getParentId(position)) {
+                members[count++] = position;
+                minLevel = Math.min(minLevel, levelOf(position));
+            }
+        }
+        if (count == 0) {
+            return ImmutableList.of();
+        }
+        members = Arrays.copyOf(members, count);
+
+        // 成员按下标升序，下级按ID顺序挂到上级下面
+        List<Integer> roots = new ArrayList<>();
+        List<List<Integer>> children = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            children.add(null);
+        }
+        for (int position : members) {
+            int level = levelOf(position);
+            if (level == minLevel) {
+                roots.add(position);
+            } else if (parents[position] != IntHashIndex.NOT_FOUND) {
+                int parentIndex = Arrays.binarySearch(members, parents[position]);
+                if (parentIndex >= 0) {
+                    if (null == children.get(parentIndex)) {
+                        children.set(parentIndex, new ArrayList<>());
+                    }
+                    children.get(parentIndex).add(position);
+                }
+            }
+        }
+
+        ImmutableList.Builder<AreaNode> builder = ImmutableList.builder();
+        for (Integer root : roots) {
+            builder.add(toNode(root, members, children));
+        }
+        return builder.build();
+    }
+
+    private AreaNode toNode(int position, int[] members, List<List<Integer>> children) {
+        List<Integer> childPositions = children.get(Arrays.binarySearch(members, position));
+        if (null == childPositions) {
+            return leaves[position];
+        }
+
+        ImmutableList.Builder<AreaNode> builder = ImmutableList.builder();
+        for (Integer child : childPositions) {
+            builder.add(toNode(child, members, children));
+        }
+        return new AreaNode(store, position, builder.build());
+    }
+
+    private int levelOf(int position) {
+        int level = store.getLevel(position);
+        return AreaStore.NULL_VALUE == level ? 1 : level;
+    }
+}
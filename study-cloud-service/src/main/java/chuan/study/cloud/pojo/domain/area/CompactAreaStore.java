@@ -0,0 +1,338 @@
+package chuan.study.cloud.pojo.domain.area;
+
+import chuan.study.cloud.pojo.model.Area;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * 紧凑的区域存储
+ * <p>
+ * 数值字段按列存放在基本类型数组中；字符串字段去重后以 UTF-8 写入同一个 byte[]，通过偏移表定位。
+ * 整个快照只有少量大数组，不再有数以万计的 String 对象长期驻留老年代，代价是每次读取都会生成新的 {@link Area}。
+ * <p>
+ * 构建时每添加一行就立即编码到列中，加载过程中不需要同时持有所有的 {@link Area}。
+ *
+ * @author Jiang Chuan
+ * @version 1.0.0
+ * @since 2019-08-28
+ */
+final class CompactAreaStore implements AreaStore {
+    /**
+     * 字符串列：name, mergedName, initial, cityCode, zipCode
+     */
+    private static final int STRING_COLUMNS = 5;
+    private static final int NAME = 0;
+    private static final int MERGED_NAME = 1;
+    private static final int INITIAL = 2;
+    private static final int CITY_CODE = 3;
+    private static final int ZIP_CODE = 4;
+
+    private final int[] ids;
+    private final int[] parentIds;
+    private final int[] levels;
+    private final long[] updatedTimes;
+
+    /**
+     * 每个区域每个字符串列对应的字符串编号，null 为 {@link #NULL_VALUE}
+     */
+    private final int[] stringRefs;
+
+    /**
+     * 第 i 个字符串为 arena[stringOffsets[i] .. stringOffsets[i + 1])
+     */
+    private final int[] stringOffsets;
+    private final byte[] arena;
+
+    private CompactAreaStore(int[] ids, int[] parentIds, int[] levels, long[] updatedTimes, int[] stringRefs,
+                             int[] stringOffsets, byte[] arena) {
+        this.ids = ids;
+        this.parentIds = parentIds;
+        this.levels = levels;
+        this.updatedTimes = updatedTimes;
+        this.stringRefs = stringRefs;
+        this.stringOffsets = stringOffsets;
+        this.arena = arena;
+    }
+
+    @Override
+    public int size() {
+        return ids.length;
+    }
+
+    @Override
+    public Area get(int position) {
+        Area area = new Area();
+        area.setId(ids[position]);
+        area.setParentId(toInteger(parentIds[position]));
+        area.setLevel(toInteger(levels[position]));
+        area.setName(getName(position));
+        area.setMergedName(getMergedName(position));
+        area.setInitial(getInitial(position));
+        area.setCityCode(getCityCode(position));
+        area.setZipCode(getZipCode(position));
+        area.setUpdatedTime(updatedTimes[position] > 0 ? new Date(updatedTimes[position]) : null);
+        return area;
+    }
+
+    @Override
+    public int getId(int position) {
+        return ids[position];
+    }
+
+    @Override
+    public int getParentId(int position) {
+        return parentIds[position];
+    }
+
+    @Override
+    public int getLevel(int position) {
+        return levels[position];
+    }
+
+    @Override
+    public long getUpdatedTime(int position) {
+        return updatedTimes[position];
+    }
+
+    @Override
+    public String getName(int position) {
+        return getString(position, NAME);
+    }
+
+    @Override
+    public String getMergedName(int position) {
+        return getString(position, MERGED_NAME);
+    }
+
+    @Override
+    public String getInitial(int position) {
+        return getString(position, INITIAL);
+    }
+
+    @Override
+    public String getCityCode(int position) {
+        return getString(position, CITY_CODE);
+    }
+
+    @Override
+    public String getZipCode(int position) {
+        return getString(position, ZIP_CODE);
+    }
+
+
+    private String getString(int position, int column) {
+        int ref = stringRefs[position * STRING_COLUMNS + column];
+        if (NULL_VALUE == ref) {
+            return null;
+        }
+        return new String(arena, stringOffsets[ref], stringOffsets[ref + 1] - stringOffsets[ref], StandardCharsets.UTF_8);
+    }
+
+    private static int toInt(Integer value) {
+        return null == value ? NULL_VALUE : value;
+    }
+
+    private static Integer toInteger(int value) {
+        return NULL_VALUE == value ? null : value;
+    }
+
+    /**
+     * 添加时立即把区域编码到可增长的列中，字符串按 UTF-8 字节去重，去重表只保存字符串编号，不保存 String 对象
+     */
+    static final class Builder implements AreaStore.Builder {
+        private static final int INITIAL_CAPACITY = 1024;
+
+        private int size;
+        private int[] ids = new int[INITIAL_CAPACITY];
+        private int[] parentIds = new int[INITIAL_CAPACITY];
+        private int[] levels = new int[INITIAL_CAPACITY];
+        private long[] updatedTimes = new long[INITIAL_CAPACITY];
+        private int[] stringRefs = new int[INITIAL_CAPACITY * STRING_COLUMNS];
+
+        private int stringCount;
+        private int[] stringOffsets = new int[INITIAL_CAPACITY + 1];
+        private byte[] arena = new byte[INITIAL_CAPACITY * 16];
+
+        /**
+         * 开放寻址的去重表，存放字符串编号 + 1，0 表示空位
+         */
+        private int[] slots = new int[INITIAL_CAPACITY * 2];
+
+        @Override
+        public void add(Area area) {
+            ensureCapacity();
+            ids[size] = area.getId();
+            parentIds[size] = toInt(area.getParentId());
+            levels[size] = toInt(area.getLevel());
+            updatedTimes[size] = null == area.getUpdatedTime() ? 0 : area.getUpdatedTime().getTime();
+
+            int base = size * STRING_COLUMNS;
+            stringRefs[base + NAME] = intern(area.getName());
+            stringRefs[base + MERGED_NAME] = intern(area.getMergedName());
+            stringRefs[base + INITIAL] = intern(area.getInitial());
+            stringRefs[base + CITY_CODE] = intern(area.getCityCode());
+            stringRefs[base + ZIP_CODE] = intern(area.getZipCode());
+            size++;
+        }
+
+        /**
+         * 来源同样是紧凑存储时直接复制列，字符串按字节重新去重，不生成中间的 {@link Area} 和 String
+         */
+        @Override
+        public void addAll(AreaStore store) {
+            if (!(store instanceof CompactAreaStore)) {
+                AreaStore.Builder.super.addAll(store);
+                return;
+            }
+
+            CompactAreaStore source = (CompactAreaStore) store;
+            int[] refs = new int[source.stringOffsets.length - 1];
+            for (int ref = 0; ref < refs.length; ref++) {
+                refs[ref] = intern(source.arena, source.stringOffsets[ref], source.stringOffsets[ref + 1]);
+            }
+            for (int i = 0; i < source.size(); i++) {
+                ensureCapacity();
+                ids[size] = source.ids[i];
+                parentIds[size] = source.parentIds[i];
+                levels[size] = source.levels[i];
+                updatedTimes[size] = source.updatedTimes[i];
+                for (int column = 0; column < STRING_COLUMNS; column++) {
+                    int ref = source.stringRefs[i * STRING_COLUMNS + column];
+                    stringRefs[size * STRING_COLUMNS + column] = NULL_VALUE == ref ? NULL_VALUE : refs[ref];
+                }
+                size++;
+            }
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public AreaStore build(boolean parallel) {
+            // 高 32 位为ID、低 32 位为添加顺序，排序后ID相同的行按添加顺序排列，只保留最后一行
+            long[] order = new long[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = ((long) ids[i] << 32) | i;
+            }
+            if (parallel) {
+                Arrays.parallelSort(order);
+            } else {
+                Arrays.sort(order);
+            }
+
+            int count = 0;
+            int[] rows = new int[size];
+            for (int i = 0; i < size; i++) {
+                if (i + 1 < size && (int) (order[i + 1] >>> 32) == (int) (order[i] >>> 32)) {
+                    continue;
+                }
+                rows[count++] = (int) order[i];
+            }
+
+            int[] sortedIds = new int[count];
+            int[] sortedParentIds = new int[count];
+            int[] sortedLevels = new int[count];
+            long[] sortedUpdatedTimes = new long[count];
+            int[] sortedStringRefs = new int[count * STRING_COLUMNS];
+            for (int i = 0; i < count; i++) {
+                int row = rows[i];
+                sortedIds[i] = ids[row];
+                sortedParentIds[i] = parentIds[row];
+                sortedLevels[i] = levels[row];
+                sortedUpdatedTimes[i] = updatedTimes[row];
+                System.arraycopy(stringRefs, row * STRING_COLUMNS, sortedStringRefs, i * STRING_COLUMNS, STRING_COLUMNS);
+            }
+            return new CompactAreaStore(sortedIds, sortedParentIds, sortedLevels, sortedUpdatedTimes, sortedStringRefs,
+                    Arrays.copyOf(stringOffsets, stringCount + 1), Arrays.copyOf(arena, stringOffsets[stringCount]));
+        }
+
+        private void ensureCapacity() {
+            if (size < ids.length) {
+                return;
+            }
+            int capacity = size + (size >> 1);
+            ids = Arrays.copyOf(ids, capacity);
+            parentIds = Arrays.copyOf(parentIds, capacity);
+            levels = Arrays.copyOf(levels, capacity);
+            updatedTimes = Arrays.copyOf(updatedTimes, capacity);
+            stringRefs = Arrays.copyOf(stringRefs, capacity * STRING_COLUMNS);
+        }
+
+        private int intern(String value) {
+            if (null == value) {
+                return NULL_VALUE;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            return intern(bytes, 0, bytes.length);
+        }
+
+        /**
+         * @return source[from .. to) 对应的字符串编号，没有时追加到字节数组中
+         */
+        private int intern(byte[] source, int from, int to) {
+            int mask = slots.length - 1;
+            int slot = hash(source, from, to) & mask;
+            for (int ref = slots[slot] - 1; ref >= 0; ref = slots[slot] - 1) {
+                if (equalsAt(ref, source, from, to)) {
+                    return ref;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            int length = to - from;
+            int offset = stringOffsets[stringCount];
+            if (offset + length > arena.length) {
+                arena = Arrays.copyOf(arena, Math.max(offset + length, arena.length + (arena.length >> 1)));
+            }
+            if (stringCount + 1 == stringOffsets.length) {
+                stringOffsets = Arrays.copyOf(stringOffsets, stringOffsets.length + (stringOffsets.length >> 1));
+            }
+            System.arraycopy(source, from, arena, offset, length);
+            stringOffsets[stringCount + 1] = offset + length;
+            slots[slot] = stringCount + 1;
+
+            // 装载因子不超过 0.5
+            if (++stringCount * 2 > slots.length) {
+                rehash();
+            }
+            return stringCount - 1;
+        }
+
+        private boolean equalsAt(int ref, byte[] source, int from, int to) {
+            int offset = stringOffsets[ref];
+            if (stringOffsets[ref + 1] - offset != to - from) {
+                return false;
+            }
+            for (int i = from; i < to; i++) {
+                if (arena[offset++] != source[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void rehash() {
+            slots = new int[slots.length * 2];
+            int mask = slots.length - 1;
+            for (int ref = 0; ref < stringCount; ref++) {
+                int slot = hash(arena, stringOffsets[ref], stringOffsets[ref + 1]) & mask;
+                while (slots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = ref + 1;
+            }
+        }
+
+        private static int hash(byte[] source, int from, int to) {
+            int h = 1;
+            for (int i = from; i < to; i++) {
+                h = 31 * h + source[i];
+            }
+            return h ^ (h >>> 16);
+        }
+    }
+}
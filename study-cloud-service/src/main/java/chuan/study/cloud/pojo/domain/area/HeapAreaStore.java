@@ -0,0 +1,121 @@
+package chuan.study.cloud.pojo.domain.area;
+
+import chuan.study.cloud.pojo.model.Area;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * 直接持有 {@link Area} 对象的存储，读取时不分配对象
+ *
+ * @author Jiang Chuan
+ * @version 1.0.0
+ * @since 2019-08-28
+ */
+final class HeapAreaStore implements AreaStore {
+    private final Area[] areas;
+
+    private HeapAreaStore(Area[] areas) {
+        this.areas = areas;
+    }
+
+    @Override
+    public int size() {
+        return areas.length;
+    }
+
+    @Override
+    public Area get(int position) {
+        return areas[position];
+    }
+
+    @Override
+    public int getId(int position) {
+        return areas[position].getId();
+    }
+
+    @Override
+    public int getParentId(int position) {
+        return toInt(areas[position].getParentId());
+    }
+
+    @Override
+    public int getLevel(int position) {
+        return toInt(areas[position].getLevel());
+    }
+
+    @Override
+    public long getUpdatedTime(int position) {
+        return null == areas[position].getUpdatedTime() ? 0 : areas[position].getUpdatedTime().getTime();
+    }
+
+    @Override
+    public String getName(int position) {
+        return areas[position].getName();
+    }
+
+    @Override
+    public String getMergedName(int position) {
+        return areas[position].getMergedName();
+    }
+
+    @Override
+    public String getInitial(int position) {
+        return areas[position].getInitial();
+    }
+
+    @Override
+    public String getCityCode(int position) {
+        return areas[position].getCityCode();
+    }
+
+    @Override
+    public String getZipCode(int position) {
+        return areas[position].getZipCode();
+    }
+
+
+    private static int toInt(Integer value) {
+        return null == value ? NULL_VALUE : value;
+    }
+
+    /**
+     * 添加的区域对象就是存储本身，只在一个数组中收集引用，生成时原地排序、去重
+     */
+    static final class Builder implements AreaStore.Builder {
+        private Area[] areas = new Area[1024];
+        private int size;
+
+        @Override
+        public void add(Area area) {
+            if (size == areas.length) {
+                areas = Arrays.copyOf(areas, size + (size >> 1));
+            }
+            areas[size++] = area;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public AreaStore build(boolean parallel) {
+            // 两种排序都是稳定的，ID相同时后添加的排在后面
+            if (parallel) {
+                Arrays.parallelSort(areas, 0, size, Comparator.comparingInt(Area::getId));
+            } else {
+                Arrays.sort(areas, 0, size, Comparator.comparingInt(Area::getId));
+            }
+
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                if (i + 1 < size && areas[i + 1].getId().equals(areas[i].getId())) {
+                    continue;
+                }
+                areas[count++] = areas[i];
+            }
+            return new HeapAreaStore(Arrays.copyOf(areas, count));
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package chuan.study.cloud.pojo.dto;
+
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 待解析的地址：分别给出省市区，或者只给出一段地址文本
+ *
+ * @author Jiang Chuan
+ * @version 1.0.0
+ * @since 2019-08-28
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AddressDTO {
+    @ApiModelProperty(notes = "省")
+    private String province;
+
+    @ApiModelProperty(notes = "市")
+    private String city;
+
+    @ApiModelProperty(notes = "区")
+    private String district;
+
+    @ApiModelProperty(notes = "地址文本，如 江苏省南京市玄武区，没有给出省时使用")
+    private String address;
+}
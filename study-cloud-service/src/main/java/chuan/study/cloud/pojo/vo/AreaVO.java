@@ -2,11 +2,13 @@ package chuan.study.cloud.pojo.vo;
 
 import chuan.study.cloud.pojo.model.Area;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.core.JsonGenerator;
 import io.swagger.annotations.ApiModelProperty;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
+import java.io.IOException;
 import java.util.Optional;
 
 /**
@@ -55,4 +57,21 @@ public class AreaVO extends BaseVO<AreaVO> {
             this.zipCode = area.getZipCode();
         });
     }
+
+    /**
+     * 不生成 AreaVO，直接按相同的字段和顺序写出区域，流式输出和城市树的序列化共用
+     *
+     * @param generator 已经写出对象开始的 generator
+     * @param area      区域
+     */
+    public static void writeFields(JsonGenerator generator, Area area) throws IOException {
+        generator.writeObjectField("id", area.getId());
+        generator.writeObjectField("parentId", area.getParentId());
+        generator.writeStringField("name", area.getName());
+        generator.writeStringField("mergedName", area.getMergedName());
+        generator.writeStringField("initial", area.getInitial());
+        generator.writeObjectField("level", area.getLevel());
+        generator.writeStringField("cityCode", area.getCityCode());
+        generator.writeStringField("zipCode", area.getZipCode());
+    }
 }
@@ -0,0 +1,230 @@
+package chuan.study.cloud.repository;
+
+import chuan.study.cloud.pojo.domain.area.AreaSnapshot;
+import chuan.study.cloud.pojo.model.Area;
+import chuan.study.cloud.util.StringUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * 区域快照的本地二进制文件
+ * <p>
+ * 每次从数据库加载成功后写入本地文件，启动时读取该文件，不必等待数据库即可提供服务。
+ * 文件内容会全部解码为区域对象，所以一次读入堆内存即可，不使用内存映射：映射在 GC 回收之前不会释放，
+ * 在 Windows 上还会导致之后替换该文件失败。
+ * <pre>
+ * 文件头: magic(int) | 格式版本(int) | 写入时间(long) | 区域数量(int) | 字符串数量(int) | 数据区CRC32(long)
+ * 字符串表: 长度(int) + UTF-8 字节，相同的字符串只存一份
+ * 区域表: id | parentId | level | name | mergedName | initial | cityCode | zipCode (int，字符串为字符串表下标) | updatedTime(long)
+ * </pre>
+ *
+ * @author Jiang Chuan
+ * @version 1.0.0
+ * @since 2019-08-28
+ */
+@Slf4j
+@Repository
+public class AreaSnapshotFileRepository {
+    private static final int MAGIC = 0x41524541;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 4 + 4 + 8;
+
+    /**
+     * 表示 null 的整数和字符串下标
+     */
+    private static final int NULL_VALUE = Integer.MIN_VALUE;
+
+    /**
+     * 快照文件路径，为空时不使用本地快照
+     */
+    @Value("${area.snapshot.location:}")
+    private String location;
+
+    /**
+     * @return 是否启用了本地快照
+     */
+    public boolean isEnabled() {
+        return StringUtils.isNotBlank(location);
+    }
+
+    /**
+     * 读取本地快照
+     *
+     * @return 快照中的区域，文件不存在或已损坏时返回 null
+     */
+    public List<Area> read() {
+        if (!isEnabled()) {
+            return null;
+        }
+
+        Path path = Paths.get(location);
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+
+        try {
+            return decode(ByteBuffer.wrap(Files.readAllBytes(path)));
+        } catch (Exception ex) {
+            log.warn("读取本地区域快照({})失败: {}", location, ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 写入本地快照，先写临时文件再替换，避免读到写了一半的文件；写入或替换失败时删除临时文件
+     *
+     * @param snapshot 区域快照
+     */
+    public void write(AreaSnapshot snapshot) {
+        if (!isEnabled() || snapshot.size() == 0) {
+            return;
+        }
+
+        long startTime = System.currentTimeMillis();
+        Path path = Paths.get(location).toAbsolutePath();
+        Path tempPath = null;
+        try {
+            byte[] content = encode(snapshot.getAreas());
+            Files.createDirectories(path.getParent());
+            tempPath = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+            Files.write(tempPath, content);
+            Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            tempPath = null;
+            log.info("写入本地区域快照({})，{}字节，耗时{}毫秒", path, content.length, System.currentTimeMillis() - startTime);
+        } catch (IOException ex) {
+            log.warn("写入本地区域快照({})失败: {}", path, ex.getMessage());
+        } finally {
+            if (null != tempPath) {
+                deleteQuietly(tempPath);
+            }
+        }
+    }
+
+    private void deleteQuietly(Path tempPath) {
+        try {
+            Files.deleteIfExists(tempPath);
+        } catch (IOException ex) {
+            log.warn("删除临时文件({})失败: {}", tempPath, ex.getMessage());
+        }
+    }
+
+
+    private byte[] encode(List<Area> areas) throws IOException {
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        ByteArrayOutputStream areaBytes = new ByteArrayOutputStream(areas.size() * 40);
+        DataOutputStream areaOutput = new DataOutputStream(areaBytes);
+        for (Area area : areas) {
+            areaOutput.writeInt(area.getId());
+            areaOutput.writeInt(toInt(area.getParentId()));
+            areaOutput.writeInt(toInt(area.getLevel()));
+            areaOutput.writeInt(intern(strings, area.getName()));
+            areaOutput.writeInt(intern(strings, area.getMergedName()));
+            areaOutput.writeInt(intern(strings, area.getInitial()));
+            areaOutput.writeInt(intern(strings, area.getCityCode()));
+            areaOutput.writeInt(intern(strings, area.getZipCode()));
+            areaOutput.writeLong(null == area.getUpdatedTime() ? 0 : area.getUpdatedTime().getTime());
+        }
+        areaOutput.flush();
+
+        ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream(areaBytes.size() + strings.size() * 16);
+        DataOutputStream bodyOutput = new DataOutputStream(bodyBytes);
+        for (String value : strings.keySet()) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            bodyOutput.writeInt(bytes.length);
+            bodyOutput.write(bytes);
+        }
+        areaBytes.writeTo(bodyOutput);
+        bodyOutput.flush();
+
+        byte[] body = bodyBytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(body);
+
+        ByteArrayOutputStream fileBytes = new ByteArrayOutputStream(HEADER_SIZE + body.length);
+        DataOutputStream fileOutput = new DataOutputStream(fileBytes);
+        fileOutput.writeInt(MAGIC);
+        fileOutput.writeInt(FORMAT_VERSION);
+        fileOutput.writeLong(System.currentTimeMillis());
+        fileOutput.writeInt(areas.size());
+        fileOutput.writeInt(strings.size());
+        fileOutput.writeLong(crc.getValue());
+        fileOutput.write(body);
+        fileOutput.flush();
+        return fileBytes.toByteArray();
+    }
+
+    private List<Area> decode(ByteBuffer buffer) {
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+            throw new IllegalStateException("不是有效的区域快照文件");
+        }
+
+        long createdTime = buffer.getLong();
+        int areaCount = buffer.getInt();
+        int stringCount = buffer.getInt();
+        long checksum = buffer.getLong();
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate());
+        if (crc.getValue() != checksum) {
+            throw new IllegalStateException("区域快照文件校验失败");
+        }
+
+        String[] strings = new String[stringCount];
+        for (int i = 0; i < stringCount; i++) {
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        List<Area> areas = new ArrayList<>(areaCount);
+        for (int i = 0; i < areaCount; i++) {
+            Area area = new Area();
+            area.setId(buffer.getInt());
+            area.setParentId(toInteger(buffer.getInt()));
+            area.setLevel(toInteger(buffer.getInt()));
+            area.setName(toString(strings, buffer.getInt()));
+            area.setMergedName(toString(strings, buffer.getInt()));
+            area.setInitial(toString(strings, buffer.getInt()));
+            area.setCityCode(toString(strings, buffer.getInt()));
+            area.setZipCode(toString(strings, buffer.getInt()));
+            long updatedTime = buffer.getLong();
+            area.setUpdatedTime(updatedTime > 0 ? new Date(updatedTime) : null);
+            areas.add(area);
+        }
+        log.info("本地区域快照写入于{}, 共{}条数据", new Date(createdTime), areaCount);
+        return areas;
+    }
+
+    private static int intern(Map<String, Integer> strings, String value) {
+        return null == value ? NULL_VALUE : strings.computeIfAbsent(value, k -> strings.size());
+    }
+
+    private static int toInt(Integer value) {
+        return null == value ? NULL_VALUE : value;
+    }
+
+    private static Integer toInteger(int value) {
+        return NULL_VALUE == value ? null : value;
+    }
+
+    private static String toString(String[] strings, int index) {
+        return NULL_VALUE == index ? null : strings[index];
+    }
+}
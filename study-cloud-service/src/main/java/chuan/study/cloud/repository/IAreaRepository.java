@@ -1,7 +1,11 @@
 package chuan.study.cloud.repository;
 
 import chuan.study.cloud.pojo.model.Area;
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.baomidou.mybatisplus.core.toolkit.Constants;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -11,5 +15,11 @@ import org.springframework.stereotype.Repository;
  */
 @Repository
 public interface IAreaRepository extends BaseMapper<Area> {
-
+    /**
+     * 以只进游标逐行读取区域，每次从数据库取回 area-load-fetch-size 行，不在内存中生成完整的结果列表
+     *
+     * @param queryWrapper 查询条件
+     * @param handler      处理每一行区域
+     */
+    void streamList(@Param(Constants.WRAPPER) Wrapper<Area> queryWrapper, ResultHandler<Area> handler);
 }
@@ -1,10 +1,14 @@
 package chuan.study.cloud.service;
 
 import chuan.study.cloud.exception.DataNotFoundException;
+import chuan.study.cloud.pojo.domain.area.AreaNode;
+import chuan.study.cloud.pojo.domain.area.AreaSnapshot;
+import chuan.study.cloud.pojo.dto.AddressDTO;
 import chuan.study.cloud.pojo.model.Area;
 
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * @author Jiang Chuan
@@ -37,6 +41,20 @@ public interface IAreaService {
      */
     List<Area> findProvinces();
 
+    /**
+     * 当前的区域快照，需要在一次请求中多次读取且保持数据一致时使用
+     *
+     * @return 区域快照
+     */
+    AreaSnapshot getSnapshot();
+
+    /**
+     * 当前区域数据的版本，由数据内容计算得到，数据相同的实例之间、重启前后都相同
+     *
+     * @return 数据版本
+     */
+    long getVersion();
+
     /**
      * 根据区域IDs查询数据
      *
@@ -45,6 +63,16 @@ public interface IAreaService {
      */
     Map<Integer, Area> findByIds(Integer... ids);
 
+    /**
+     * 批量根据区域ID查询，按传入顺序逐个回调，不存在的ID直接跳过
+     * <p>
+     * 整批使用同一个快照，不生成中间集合，适合一次查询大量ID
+     *
+     * @param ids      区域IDs
+     * @param consumer 查询到的区域
+     */
+    void findByIds(int[] ids, Consumer<Area> consumer);
+
     /**
      * 查询下级区域
      *
@@ -63,6 +91,71 @@ public interface IAreaService {
      */
     List<Area> findByCityCode(String cityCode, Integer level);
 
+    /**
+     * 根据邮编查询数据
+     *
+     * @param zipCode 邮编或邮编前缀
+     * @param prefix  是否按前缀匹配
+     * @return 满足条件的区域数据，先按邮编再按ID排序
+     */
+    List<Area> findByZipCode(String zipCode, boolean prefix);
+
+    /**
+     * 根据完整名称查询数据
+     *
+     * @param mergedName 完整名称或其前缀，如 中国,江苏省,南京市,玄武区
+     * @param prefix     是否按前缀匹配
+     * @return 满足条件的区域数据，先按完整名称再按ID排序
+     */
+    List<Area> findByMergedName(String mergedName, boolean prefix);
+
+    /**
+     * 名称联想，不经过 ES，直接查询快照中按前缀预先排好的结果
+     *
+     * @param keyword 名称、全拼或拼音首字母的前缀
+     * @param limit   最多返回的数量
+     * @return 匹配的区域，级别小的排在前面
+     */
+    List<Area> suggest(String keyword, int limit);
+
+    /**
+     * 查询上级区域及其下级组成的树，树在数据加载时生成，多次查询返回同一份节点
+     *
+     * @param parentId 上级ID
+     * @param level    返回第几级数据
+     * @return 满足条件的区域树
+     */
+    List<AreaNode> findTreeByParent(Integer parentId, Integer level);
+
+    /**
+     * 在指定的快照中查询上级区域及其下级组成的树，结果需要与快照版本保持一致时使用
+     *
+     * @param snapshot 区域快照
+     * @param parentId 上级ID
+     * @param level    返回第几级数据
+     * @return 满足条件的区域树
+     */
+    List<AreaNode> findTreeByParent(AreaSnapshot snapshot, Integer parentId, Integer level);
+
+    /**
+     * 根据区号查询区域树，树在数据加载时生成，多次查询返回同一份节点
+     *
+     * @param cityCode 区号
+     * @param level    返回第几级数据
+     * @return 满足条件的区域树
+     */
+    List<AreaNode> findTreeByCityCode(String cityCode, Integer level);
+
+    /**
+     * 在指定的快照中根据区号查询区域树，结果需要与快照版本保持一致时使用
+     *
+     * @param snapshot 区域快照
+     * @param cityCode 区号
+     * @param level    返回第几级数据
+     * @return 满足条件的区域树
+     */
+    List<AreaNode> findTreeByCityCode(AreaSnapshot snapshot, String cityCode, Integer level);
+
     /**
      * 通过ID持续向上查找，直到最父级
      *
@@ -71,6 +164,15 @@ public interface IAreaService {
      */
     List<Area> findChain(Integer areaId);
 
+    /**
+     * 在指定的快照中查询区域链，结果需要与快照版本保持一致时使用
+     *
+     * @param snapshot 区域快照
+     * @param areaId   区域ID
+     * @return 从当前节点出发，直接到无父级为止
+     */
+    List<Area> findChain(AreaSnapshot snapshot, Integer areaId);
+
     /**
      * 根据省市区查询详情
      *
@@ -82,9 +184,33 @@ public interface IAreaService {
     List<Area> findByAddress(String province, String city, String district);
 
     /**
-     * 从数据库中重新加载数据
+     * 根据一段地址文本查询省市区，如 "江苏省南京市玄武区"、"北京市朝阳区"
+     *
+     * @param address 地址文本
+     * @return 匹配到的省、市、区，匹配不到的部分不返回
+     */
+    List<Area> findByAddress(String address);
+
+    /**
+     * 在指定的快照中查询省市区，批量查询时所有地址使用同一个快照
+     *
+     * @param snapshot 区域快照
+     * @param address  地址，没有给出省时按地址文本拆分
+     * @return 匹配到的省、市、区，匹配不到的部分不返回
+     */
+    List<Area> findByAddress(AreaSnapshot snapshot, AddressDTO address);
+
+    /**
+     * 从数据库中重新加载数据，同步到 ES 并通知其他实例
+     *
+     * @param full true: 全量加载; false: 只加载上次刷新之后更新过的数据
+     */
+    void refresh(boolean full);
+
+    /**
+     * 只重新加载本实例的数据，不同步 ES，也不通知其他实例；用于响应其他实例的刷新通知
      *
-     * @return true: 重加载成功
+     * @param full true: 全量加载; false: 只加载上次刷新之后更新过的数据
      */
-    void refresh();
+    void reload(boolean full);
 }
\ No newline at end of file
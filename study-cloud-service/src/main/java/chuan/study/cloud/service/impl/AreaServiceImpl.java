@@ -1,9 +1,17 @@
 package chuan.study.cloud.service.impl;
 
+import chuan.study.cloud.common.Constants;
 import chuan.study.cloud.exception.BusinessException;
 import chuan.study.cloud.exception.DataNotFoundException;
+import chuan.study.cloud.pojo.domain.area.AreaGroup;
+import chuan.study.cloud.pojo.domain.area.AreaNode;
+import chuan.study.cloud.pojo.domain.area.AreaRefreshMessage;
+import chuan.study.cloud.pojo.domain.area.AreaRefreshedEvent;
+import chuan.study.cloud.pojo.domain.area.AreaSnapshot;
+import chuan.study.cloud.pojo.dto.AddressDTO;
 import chuan.study.cloud.pojo.enums.ResponseCodeEnum;
 import chuan.study.cloud.pojo.model.Area;
+import chuan.study.cloud.repository.AreaSnapshotFileRepository;
 import chuan.study.cloud.repository.IAreaRepository;
 import chuan.study.cloud.service.IAreaService;
 import chuan.study.cloud.util.NumberUtils;
@@ -13,13 +21,16 @@ import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections.CollectionUtils;
-import org.apache.commons.collections.MapUtils;
 import org.elasticsearch.action.update.UpdateRequest;
 import org.elasticsearch.client.RequestOptions;
 import org.elasticsearch.client.RestHighLevelClient;
 import org.elasticsearch.common.xcontent.XContentType;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
@@ -28,12 +39,15 @@ import javax.annotation.PostConstruct;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Comparator;
-import java.util.HashMap;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -44,19 +58,41 @@ import java.util.stream.Collectors;
 @Slf4j
 @Service
 public class AreaServiceImpl implements IAreaService {
+    /**
+     * 根据地址匹配城市时，名称相似度需要超过该值
+     */
+    private static final float MIN_SIMILARITY_RATIO = 0.5F;
+
     private final IAreaRepository areaRepository;
+    private final AreaSnapshotFileRepository snapshotFileRepository;
     private final KafkaTemplate<String, String> kafkaTemplate;
     private final RestHighLevelClient elasticSearchClient;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Executor taskExecutor;
+    private final MeterRegistry meterRegistry;
 
-    private List<Area> provinces = new ArrayList<>();
-    private Map<Integer, Area> cacheByIdMap = new HashMap<>();
-    private Map<Integer, List<Area>> cacheByParentMap = new HashMap<>();
-    private Map<String, List<Area>> cacheByCodeMap = new HashMap<>();
+    /**
+     * 当前的区域快照，刷新时整体替换
+     */
+    private volatile AreaSnapshot snapshot = AreaSnapshot.EMPTY;
 
-    public AreaServiceImpl(IAreaRepository areaRepository, KafkaTemplate<String, String> kafkaTemplate, RestHighLevelClient elasticSearchClient) {
+    /**
+     * 是否使用紧凑存储，以读取时生成对象为代价减少常驻堆内存的字符串对象
+     */
+    @Value("${area.snapshot.compact:false}")
+    private boolean compact;
+
+    public AreaServiceImpl(IAreaRepository areaRepository, AreaSnapshotFileRepository snapshotFileRepository,
+                           KafkaTemplate<String, String> kafkaTemplate, RestHighLevelClient elasticSearchClient,
+                           ApplicationEventPublisher eventPublisher, @Qualifier("taskExecutor") Executor taskExecutor,
+                           MeterRegistry meterRegistry) {
         this.areaRepository = areaRepository;
+        this.snapshotFileRepository = snapshotFileRepository;
         this.kafkaTemplate = kafkaTemplate;
         this.elasticSearchClient = elasticSearchClient;
+        this.eventPublisher = eventPublisher;
+        this.taskExecutor = taskExecutor;
+        this.meterRegistry = meterRegistry;
     }
 
     @Override
@@ -67,96 +103,202 @@ public class AreaServiceImpl implements IAreaService {
 
     @Override
     public Area loadSafely(int id) {
-        return cacheByIdMap.get(id);
+        return snapshot.getArea(id);
+    }
+
+    @Override
+    public AreaSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    @Override
+    public long getVersion() {
+        return snapshot.getVersion();
     }
 
     @Override
     public List<Area> findProvinces() {
-        return CollectionUtils.isEmpty(provinces) ? ImmutableList.of() : ImmutableList.copyOf(provinces);
+        return snapshot.getProvinces();
     }
 
     @Override
     public Map<Integer, Area> findByIds(Integer... ids) {
-        return ImmutableMap.copyOf(Arrays.stream(ids).map(this::loadSafely)
+        AreaSnapshot current = snapshot;
+        return ImmutableMap.copyOf(Arrays.stream(ids).map(current::getArea)
                 .filter(Objects::nonNull)
                 .collect(Collectors.toMap(Area::getId, area -> area)));
     }
 
     @Override
-    public List<Area> findByParent(Integer parentId, Integer level) {
-        if (NumberUtils.isNotPositive(parentId)) {
-            throw new BusinessException("传入的父区域ID不正确！");
+    public void findByIds(int[] ids, Consumer<Area> consumer) {
+        AreaSnapshot current = snapshot;
+        for (int id : ids) {
+            Area area = current.getArea(id);
+            if (null != area) {
+                consumer.accept(area);
+            }
         }
+    }
 
-        List<Area> areas = cacheByParentMap.get(parentId);
-        if (CollectionUtils.isEmpty(areas)) {
-            return new ArrayList<>(0);
+    @Override
+    public List<Area> findByParent(Integer parentId, Integer level) {
+        return getParentGroup(snapshot, parentId).get(level);
+    }
+
+    @Override
+    public List<Area> findByCityCode(String cityCode, Integer level) {
+        return getCodeGroup(snapshot, cityCode).get(level);
+    }
+
+    @Override
+    public List<Area> findByZipCode(String zipCode, boolean prefix) {
+        if (StringUtils.isBlank(zipCode)) {
+            throw new BusinessException("传入的邮编不正确！");
         }
+        AreaSnapshot current = snapshot;
+        return prefix ? current.getByZipCodePrefix(zipCode.trim()) : current.getByZipCode(zipCode.trim());
+    }
 
-        areas = new ArrayList<>(areas);
-        areas.add(loadSafely(parentId));
-        return filterForLevelAndSort(areas, level);
+    @Override
+    public List<Area> findByMergedName(String mergedName, boolean prefix) {
+        if (StringUtils.isBlank(mergedName)) {
+            throw new BusinessException("传入的完整名称不正确！");
+        }
+        AreaSnapshot current = snapshot;
+        return prefix ? current.getByMergedNamePrefix(mergedName.trim()) : current.getByMergedName(mergedName.trim());
     }
 
     @Override
-    public List<Area> findByCityCode(String cityCode, Integer level) {
-        if (StringUtils.isBlank(cityCode)) {
-            throw new BusinessException("传入的城市代码不正确！");
+    public List<Area> suggest(String keyword, int limit) {
+        if (StringUtils.isBlank(keyword)) {
+            return ImmutableList.of();
         }
-        return filterForLevelAndSort(cacheByCodeMap.get(cityCode.trim()), level);
+        return snapshot.getSuggestions(StringUtils.deleteWhitespace(keyword), limit);
+    }
+
+    @Override
+    public List<AreaNode> findTreeByParent(Integer parentId, Integer level) {
+        return findTreeByParent(snapshot, parentId, level);
+    }
+
+    @Override
+    public List<AreaNode> findTreeByParent(AreaSnapshot current, Integer parentId, Integer level) {
+        return getParentGroup(current, parentId).getTree(level);
+    }
+
+    @Override
+    public List<AreaNode> findTreeByCityCode(String cityCode, Integer level) {
+        return findTreeByCityCode(snapshot, cityCode, level);
+    }
+
+    @Override
+    public List<AreaNode> findTreeByCityCode(AreaSnapshot current, String cityCode, Integer level) {
+        return getCodeGroup(current, cityCode).getTree(level);
     }
 
     @Override
     public List<Area> findChain(Integer areaId) {
+        return findChain(snapshot, areaId);
+    }
+
+    @Override
+    public List<Area> findChain(AreaSnapshot current, Integer areaId) {
         if (NumberUtils.isNotPositive(areaId)) {
             return ImmutableList.of();
         }
+        return current.getChain(areaId);
+    }
 
-        Area area;
-        Integer parentId = areaId;
-        int level = Integer.MAX_VALUE;
-        List<Area> innerAreas = new ArrayList<>();
-        while (level > 1) {
-            area = loadSafely(parentId);
-            if (null != area && NumberUtils.isPositive(area.getParentId())) {
-                parentId = area.getParentId();
-                level = area.getLevel();
-                innerAreas.add(area);
-            } else {
-                level = 0;
-            }
-        }
 
-        if (innerAreas.size() > 1) {
-            innerAreas.sort(Comparator.comparingInt(Area::getLevel));
+    @Override
+    public List<Area> findByAddress(String provinceName, String cityName, String districtName) {
+        return findByAddress(snapshot, provinceName, cityName, districtName);
+    }
+
+    @Override
+    public List<Area> findByAddress(String address) {
+        return findByAddress(snapshot, new AddressDTO(null, null, null, address));
+    }
+
+    @Override
+    public List<Area> findByAddress(AreaSnapshot current, AddressDTO address) {
+        if (null == address) {
+            return new ArrayList<>(0);
         }
-        return ImmutableList.copyOf(innerAreas);
+        if (StringUtils.isBlank(address.getProvince())) {
+            AddressDTO parts = splitAddress(address.getAddress());
+            return findByAddress(current, parts.getProvince(), parts.getCity(), parts.getDistrict());
+        }
+        return findByAddress(current, address.getProvince(), address.getCity(), address.getDistrict());
     }
 
 
     @Override
-    public List<Area> findByAddress(String provinceName, String cityName, String districtName) {
-        List<Area> emptyList = new ArrayList<>(0);
+    @Async("taskExecutor")
+    public void refresh(boolean full) {
+        List<Area> changedAreas = full ? loadAll() : loadChanged();
+        if (changedAreas.isEmpty()) {
+            return;
+        }
+
+        // 先通知其他实例重新加载，不必等待同步 ES
+        AreaRefreshMessage message = new AreaRefreshMessage(Constants.INSTANCE_ID, snapshot.getVersion(), full);
+        kafkaTemplate.send(Constants.KAFKA_AREA_REFRESHED_TOPIC_NAME, Constants.INSTANCE_ID, JSON.toJSONString(message));
+
+        log.info("=== 同步城市数据到 ES | 开始 === ");
+        String indexName = "area";
+        changedAreas.forEach(area -> {
+            try {
+                String jsonString = JSON.toJSONString(area);
+                UpdateRequest request = new UpdateRequest(indexName, String.valueOf(area.getId()))
+                        .doc(jsonString, XContentType.JSON)
+                        .upsert(jsonString, XContentType.JSON);
+
+                elasticSearchClient.update(request, RequestOptions.DEFAULT);
+            } catch (IOException ex) {
+                log.error(ex.getMessage(), ex);
+            }
+        });
+        log.info("=== 同步城市数据到 ES | 结束, 共{}条 === ", changedAreas.size());
+    }
+
+    @Override
+    public void reload(boolean full) {
+        if (full) {
+            loadAll();
+        } else {
+            loadChanged();
+        }
+    }
+
+    /** ========================================== private method =============================== */
+    /**
+     * 在同一个快照中依次匹配省、市、区，名称归一后相同的直接命中，否则再按相似度匹配
+     */
+    private List<Area> findByAddress(AreaSnapshot current, String provinceName, String cityName, String districtName) {
         if (StringUtils.isBlank(provinceName)) {
-            return emptyList;
+            return new ArrayList<>(0);
         }
 
         // 匹配省份
-        Area province = getMatchedArea(provinceName, toAreaMap(provinces));
+        Area province = Optional.ofNullable(current.getProvinceByName(provinceName))
+                .orElseGet(() -> getMatchedArea(provinceName, current::getProvincesByInitial));
         if (null == province) {
             log.warn("传入的省份({})信息不正确。", provinceName);
             return new ArrayList<>(0);
         }
 
         // 匹配城市
-        Area city = getMatchedArea(cityName, toAreaMap(cacheByParentMap.getOrDefault(province.getId(), emptyList)));
+        Area city = Optional.ofNullable(current.getChildByName(province.getId(), cityName))
+                .orElseGet(() -> getMatchedArea(cityName, initial -> current.getChildrenByInitial(province.getId(), initial)));
         if (null == city) {
             log.warn("传入的城市({})信息不正确。", cityName);
             return Lists.newArrayList(province);
         }
 
         // 匹配地区
-        Area district = getMatchedArea(districtName, toAreaMap(cacheByParentMap.getOrDefault(city.getId(), emptyList)));
+        Area district = Optional.ofNullable(current.getChildByName(city.getId(), districtName))
+                .orElseGet(() -> getMatchedArea(districtName, initial -> current.getChildrenByInitial(city.getId(), initial)));
         if (null == district) {
             log.warn("传入的地区({})信息不正确。", districtName);
             return Lists.newArrayList(province, city);
@@ -165,40 +307,69 @@ public class AreaServiceImpl implements IAreaService {
         return Lists.newArrayList(province, city, district);
     }
 
+    /**
+     * 按 省/直辖市、市、区县 的后缀拆分地址文本，拆不出的部分为空字符串
+     */
+    private static AddressDTO splitAddress(String address) {
+        String rest = StringUtils.trimToEmpty(address);
+        String province = "", city = "", district = "";
+
+        // 获取省份（包括自治区、特别行政区）
+        int provinceIndex = indexAfter(rest, "省", "自治区", "特别行政区");
+        if (provinceIndex > 0) {
+            province = rest.substring(0, provinceIndex);
+            rest = rest.substring(provinceIndex);
+        }
 
-    @Override
-    @Async("taskExecutor")
-    public void refresh() {
-        this.initialize();
-        log.info("=== 同步城市数据到 ES | 开始 === ");
+        // 如果没取到省，可能是直辖市
+        if (StringUtils.isBlank(province)) {
+            provinceIndex = indexAfter(rest, "市");
+            if (provinceIndex > 0) {
+                province = rest.substring(0, provinceIndex);
+                city = province;
+                rest = rest.substring(provinceIndex);
+            }
+        }
 
-        String indexName = "area";
-        cacheByIdMap.forEach((k, v) -> {
-            try {
-                String jsonString = JSON.toJSONString(v);
-                UpdateRequest request = new UpdateRequest(indexName, String.valueOf(k))
-                        .doc(jsonString, XContentType.JSON)
-                        .upsert(jsonString, XContentType.JSON);
+        // 获取市（包括自治州、地区、盟）
+        int cityIndex = indexAfter(rest, "市", "自治州", "地区", "盟");
+        if (cityIndex > 0) {
+            city = rest.substring(0, cityIndex);
+            rest = rest.substring(cityIndex);
+        }
 
-                elasticSearchClient.update(request, RequestOptions.DEFAULT);
-            } catch (IOException ex) {
-                log.error(ex.getMessage(), ex);
+        // 获取区县（包括县级市、旗）
+        int districtIndex = indexAfter(rest, "区", "县", "市", "旗");
+        if (districtIndex > 0) {
+            district = rest.substring(0, districtIndex);
+        }
+        return new AddressDTO(province, city, district, address);
+    }
+
+    /**
+     * @return 最先出现的后缀之后的位置，都没有出现时返回 0
+     */
+    private static int indexAfter(String text, String... suffixes) {
+        int end = 0;
+        for (String suffix : suffixes) {
+            int index = text.indexOf(suffix);
+            if (index >= 0 && (end == 0 || index + suffix.length() < end)) {
+                end = index + suffix.length();
             }
-        });
-        log.info("=== 同步城市数据到 ES | 结束 === ");
-        // kafkaTemplate.send(Constants.KAFKA_TOPIC_NAME, String.valueOf(SystemClock.now()), "area-refreshed");
+        }
+        return end;
     }
 
-    /** ========================================== private method =============================== */
     /**
-     * 查询匹配的城市
+     * 查询匹配的城市，候选城市在构建快照时已按拼音首字母分组，这里只需要转换传入的名称
+     * 返回候选城市中与名称最相似的一个
      *
-     * @param name    城市名称
-     * @param areaMap 按首字母分组的城市列表
+     * @param name       城市名称
+     * @param candidates 根据大写首字母获取候选城市
      * @return 匹配的城市
      */
-    private Area getMatchedArea(final String name, final Map<String, List<Area>> areaMap) {
-        if (StringUtils.isBlank(name) || MapUtils.isEmpty(areaMap)) {
+    private Area getMatchedArea(final String name, final Function<Character, List<Area>> candidates) {
+        if (StringUtils.isBlank(name)) {
             return null;
         }
 
@@ -207,86 +378,162 @@ public class AreaServiceImpl implements IAreaService {
             return null;
         }
 
-        List<Area> areas = areaMap.getOrDefault(String.valueOf(initial.charAt(0)).toUpperCase(), new ArrayList<>(0));
-        for (Area area : areas) {
-            if (StringUtils.getSimilarityRatio(area.getName(), name) > 0.5) {
-                return area;
+        // 在候选城市中找相似度最高的，相似度需要超过 0.5；相同时取排在前面的
+        Area matched = null;
+        float matchedRatio = MIN_SIMILARITY_RATIO;
+        for (Area area : candidates.apply(Character.toUpperCase(initial.charAt(0)))) {
+            String areaName = area.getName();
+            if (null == areaName) {
+                continue;
             }
-        }
-        return null;
-    }
-
 
-    private Map<String, List<Area>> toAreaMap(List<Area> areas) {
-        Map<String, List<Area>> areaMap = new HashMap<>(areas.size());
+            // 距离达到该值时相似度不可能超过当前结果，计算编辑距离时提前结束
+            int length = Math.max(areaName.length(), name.length());
+            int maxDistance = (int) Math.ceil((1 - matchedRatio) * length);
+            int distance = StringUtils.getEditDistance(areaName, name, maxDistance);
+            if (distance > maxDistance) {
+                continue;
+            }
 
-        areas.forEach(area -> {
-            String initial1 = StringUtils.upperCase(area.getInitial());
-            String initial2 = String.valueOf(StringUtils.chineseToPinyin(area.getName(), true).charAt(0)).toUpperCase();
+            float ratio = 1 - (float) distance / length;
+            if (ratio > matchedRatio) {
+                matched = area;
+                matchedRatio = ratio;
+                if (distance == 0) {
+                    break;
+                }
+            }
+        }
+        return matched;
+    }
 
-            List<Area> innerAreas = areaMap.computeIfAbsent(initial1, k -> new ArrayList<>());
-            innerAreas.add(area);
+    /**
+     * 优先使用本地快照文件立即提供服务，再在后台与数据库同步；没有本地快照时直接从数据库加载
+     */
+    @PostConstruct
+    private void initialize() {
+        long startTime = System.currentTimeMillis();
+        List<Area> cachedAreas = snapshotFileRepository.read();
+        if (CollectionUtils.isEmpty(cachedAreas)) {
+            loadAll();
+            return;
+        }
 
-            // 如果是多音字
-            if (!StringUtils.equals(initial1, initial2)) {
-                List<Area> innerAreas2 = areaMap.computeIfAbsent(initial2, k -> new ArrayList<>());
-                innerAreas2.add(area);
+        publish(newSnapshotBuilder().addAll(cachedAreas).build());
+        log.info("从本地快照获取{}条城市数据，耗时{}毫秒", snapshot.size(), System.currentTimeMillis() - startTime);
+        taskExecutor.execute(() -> {
+            try {
+                loadAll();
+            } catch (Exception ex) {
+                log.error("从数据库加载城市数据失败，继续使用本地快照", ex);
             }
         });
-
-        return areaMap;
     }
 
+    /**
+     * 从数据库全量加载数据并构建新的快照，构建完成后一次性发布；
+     * 多个刷新任务之间串行执行，读请求不受影响。
+     * 数据库中的行通过游标直接加入快照构建器，不再先生成完整的结果列表；使用紧凑存储时每一行在加入时即编码，随后就可以被回收
+     *
+     * @return 新快照中的所有区域，数据与当前快照相同时返回空列表，与增量加载一样不再通知其他实例和同步 ES
+     */
+    private synchronized List<Area> loadAll() {
+        long startTime = System.currentTimeMillis();
+
+        AreaSnapshot.Builder builder = newSnapshotBuilder();
+        areaRepository.streamList(newQueryWrapper(), context -> builder.add(context.getResultObject()));
+        boolean changed = publish(builder.build());
+        log.info("获取{}条城市数据，耗时{}毫秒", snapshot.size(), System.currentTimeMillis() - startTime);
+        if (!changed) {
+            return ImmutableList.of();
+        }
+
+        snapshotFileRepository.write(snapshot);
+        return snapshot.getAreas();
+    }
 
     /**
-     * 按城市所在级别进行过滤
+     * 只加载上次更新时间之后变化的数据，合并到当前快照中生成新的快照；
+     * 增量方式无法感知删除，没有更新时间标记时退回全量加载
      *
-     * @param areas 城市列表
-     * @param level 城市级别
-     * @return 过滤和排序后的城市列表
+     * @return 变化的区域，与当前快照完全相同的行不计入
      */
-    private List<Area> filterForLevelAndSort(List<Area> areas, Integer level) {
-        if (CollectionUtils.isEmpty(areas)) {
-            return new ArrayList<>(0);
+    private synchronized List<Area> loadChanged() {
+        AreaSnapshot current = snapshot;
+        Date highWaterMark = current.getHighWaterMark();
+        if (null == highWaterMark) {
+            log.info("当前城市数据没有更新时间标记，改为全量加载");
+            return loadAll();
         }
 
-        List<Area> innerAreas;
+        long startTime = System.currentTimeMillis();
+        // 使用 >= 避免遗漏与标记时间相同但提交较晚的数据，因此至少会查到标记时间那一批已经加载过的行，需要逐行比较后剔除
+        List<Area> changedAreas = new ArrayList<>();
+        areaRepository.streamList(newQueryWrapper().ge(Area::getUpdatedTime, highWaterMark), context -> {
+            if (!current.contains(context.getResultObject())) {
+                changedAreas.add(context.getResultObject());
+            }
+        });
+        if (changedAreas.isEmpty()) {
+            log.info("自{}以来城市数据没有变化", highWaterMark);
+            return ImmutableList.of();
+        }
 
-        // 根据城市级别进行过滤
-        if (NumberUtils.isPositive(level)) {
-            innerAreas = areas.stream().filter(area -> level.equals(area.getLevel())).collect(Collectors.toList());
-        } else {
-            innerAreas = new ArrayList<>(areas);
+        // 旧快照的区域直接从存储中复制，变化的区域后添加，覆盖ID相同的旧数据
+        AreaSnapshot.Builder builder = newSnapshotBuilder().addAll(current);
+        changedAreas.forEach(builder::add);
+        if (publish(builder.build())) {
+            snapshotFileRepository.write(snapshot);
+        }
+        log.info("增量更新{}条城市数据，耗时{}毫秒", changedAreas.size(), System.currentTimeMillis() - startTime);
+        return changedAreas;
+    }
+
+    private AreaGroup getParentGroup(AreaSnapshot current, Integer parentId) {
+        if (NumberUtils.isNotPositive(parentId)) {
+            throw new BusinessException("传入的父区域ID不正确！");
         }
+        return current.getParentGroup(parentId);
+    }
 
-        // 按序号排序
-        if (CollectionUtils.isNotEmpty(innerAreas)) {
-            innerAreas.sort(Comparator.comparingInt(Area::getId));
+    private AreaGroup getCodeGroup(AreaSnapshot current, String cityCode) {
+        if (StringUtils.isBlank(cityCode)) {
+            throw new BusinessException("传入的城市代码不正确！");
         }
-        return ImmutableList.copyOf(innerAreas);
+        return current.getCodeGroup(cityCode.trim());
     }
 
-    @PostConstruct
-    private void initialize() {
-        long startTime = System.currentTimeMillis();
+    /**
+     * 记录快照各阶段的构建耗时，替换当前快照并发布事件；版本与当前快照相同说明数据没有变化，保留当前快照
+     *
+     * @return 是否替换了当前快照
+     */
+    private boolean publish(AreaSnapshot newSnapshot) {
+        newSnapshot.getBuildNanos().forEach((phase, nanos) -> meterRegistry.timer("area.snapshot.build", "phase", phase)
+                .record(nanos, TimeUnit.NANOSECONDS));
+        if (newSnapshot.getVersion() == snapshot.getVersion()) {
+            log.info("城市数据没有变化，继续使用版本{}的快照", Long.toHexString(newSnapshot.getVersion()));
+            return false;
+        }
 
-        LambdaQueryWrapper<Area> queryWrapper = new LambdaQueryWrapper<Area>()
-                .select(Area.class, c -> !StringUtils.endsWithIgnoreCase(c.getProperty(), "time"));
-        Optional.ofNullable(areaRepository.selectList(queryWrapper)).ifPresent(areas -> {
-            cacheByIdMap = areas.stream().collect(Collectors.toMap(Area::getId, area -> area));
-            provinces = ImmutableList.copyOf(areas.stream()
-                    .filter(area -> null != area.getLevel() && 1 == area.getLevel())
-                    .sorted(Comparator.comparing(Area::getId))
-                    .collect(Collectors.toList()));
-
-            cacheByParentMap = areas.stream()
-                    .filter(area -> NumberUtils.isPositive(area.getParentId()))
-                    .collect(Collectors.groupingBy(Area::getParentId));
-
-            cacheByCodeMap = areas.stream()
-                    .filter(area -> StringUtils.isNotBlank(area.getCityCode()))
-                    .collect(Collectors.groupingBy(Area::getCityCode));
-        });
-        log.info("获取{}条城市数据，耗时{}毫秒", cacheByIdMap.size(), System.currentTimeMillis() - startTime);
+        log.info("城市数据快照构建完成，共{}个区域，版本{}，各阶段耗时（毫秒）: {}", newSnapshot.size(), Long.toHexString(newSnapshot.getVersion()),
+                newSnapshot.getBuildNanos().entrySet().stream()
+                        .map(entry -> entry.getKey() + "=" + TimeUnit.NANOSECONDS.toMillis(entry.getValue()))
+                        .collect(Collectors.joining(", ")));
+        snapshot = newSnapshot;
+        eventPublisher.publishEvent(new AreaRefreshedEvent(this, newSnapshot));
+        return true;
+    }
+
+    private AreaSnapshot.Builder newSnapshotBuilder() {
+        return AreaSnapshot.builder().compact(compact);
+    }
+
+    /**
+     * 查询区域的条件，只需要更新时间用作增量标记，不查询创建时间
+     */
+    private LambdaQueryWrapper<Area> newQueryWrapper() {
+        return new LambdaQueryWrapper<Area>()
+                .select(Area.class, c -> !StringUtils.equals(c.getProperty(), "createdTime"));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,118 @@
+package chuan.study.cloud.task;
+
+import chuan.study.cloud.common.Constants;
+import chuan.study.cloud.pojo.domain.area.AreaRefreshMessage;
+import chuan.study.cloud.service.IAreaService;
+import chuan.study.cloud.util.CollectionUtils;
+import chuan.study.cloud.util.StringUtils;
+import com.alibaba.fastjson.JSON;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 接收其他实例发出的区域数据刷新通知
+ * <p>
+ * 每个实例使用独立的消费组，保证所有实例都能收到通知。消费组默认按主机名和端口命名，重启后沿用原来的消费组，
+ * 不会像按启动时随机生成的实例ID命名那样，每次重启或扩容都在 Kafka 上留下一个不再使用的消费组。
+ * 短时间内收到的多条通知合并为一次加载，
+ * 通知中的数据版本与本实例当前版本相同时说明数据已经一致，直接丢弃。
+ * 不比较发送方和本地的时间，避免实例之间的时钟偏差导致通知被误丢。
+ *
+ * @author Jiang Chuan
+ * @version 1.0.0
+ * @since 2019-08-28
+ */
+@Slf4j
+@Component
+public class AreaRefreshReceiver {
+    private final IAreaService areaService;
+    private final ScheduledExecutorService scheduler = new ScheduledThreadPoolExecutor(1,
+            new BasicThreadFactory.Builder().namingPattern("AREA-REFRESH-%d").daemon(true).build());
+
+    /**
+     * 合并通知的等待时间，单位毫秒
+     */
+    @Value("${area.refresh.debounce-millis:2000}")
+    private long debounceMillis;
+
+    /**
+     * 是否已经安排了加载任务
+     */
+    private boolean scheduled;
+
+    /**
+     * 等待中的通知是否需要全量加载
+     */
+    private boolean pendingFull;
+
+    public AreaRefreshReceiver(IAreaService areaService) {
+        this.areaService = areaService;
+    }
+
+    @KafkaListener(groupId = "${area.refresh.group-id:area-refresh-#{T(java.net.InetAddress).getLocalHost().getHostName()}-${server.port:8080}}",
+            topics = {Constants.KAFKA_AREA_REFRESHED_TOPIC_NAME})
+    public void listen(List<ConsumerRecord<String, String>> records) {
+        if (CollectionUtils.isEmpty(records)) {
+            return;
+        }
+
+        records.forEach(record -> {
+            AreaRefreshMessage message;
+            try {
+                message = JSON.parseObject(record.value(), AreaRefreshMessage.class);
+            } catch (Exception ex) {
+                log.warn("[KAFKA] - 无法解析的区域刷新通知: {}", record.value());
+                return;
+            }
+
+            if (null == message || StringUtils.equals(Constants.INSTANCE_ID, message.getInstanceId())) {
+                return;
+            }
+            schedule(message);
+        });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    private synchronized void schedule(AreaRefreshMessage message) {
+        if (message.getVersion() == areaService.getVersion()) {
+            log.info("[KAFKA] - 本实例的区域数据已是最新，忽略刷新通知: {}", message);
+            return;
+        }
+
+        pendingFull |= message.isFull();
+        if (!scheduled) {
+            scheduled = true;
+            scheduler.schedule(this::reload, debounceMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void reload() {
+        boolean full;
+        synchronized (this) {
+            full = pendingFull;
+            pendingFull = false;
+            scheduled = false;
+        }
+
+        try {
+            log.info("[KAFKA] - 收到其他实例的区域刷新通知，开始{}加载", full ? "全量" : "增量");
+            areaService.reload(full);
+        } catch (Exception ex) {
+            log.error("[KAFKA] - 区域数据加载失败", ex);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package chuan.study.cloud.task;
+
+import chuan.study.cloud.pojo.domain.area.AreaRefreshedEvent;
+import chuan.study.cloud.service.IAreaService;
+import chuan.study.cloud.web.json.AreaResponseCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * 启动完成后预热区域数据，预热完成之前健康检查返回 DOWN
+ * <p>
+ * 负载均衡根据健康检查摘除实例，所以冷启动的实例在数据和响应缓存准备好之前不会接收请求。
+ *
+ * @author Jiang Chuan
+ * @version 1.0.0
+ * @since 2019-08-28
+ */
+@Slf4j
+@Component("areaWarmUp")
+public class AreaWarmUpTask implements HealthIndicator {
+    private final IAreaService areaService;
+    private final AreaResponseCache responseCache;
+
+    private volatile boolean ready;
+    private volatile int warmedResponses;
+    private volatile long elapsedMillis;
+    private volatile String error;
+
+    public AreaWarmUpTask(IAreaService areaService, AreaResponseCache responseCache) {
+        this.areaService = areaService;
+        this.responseCache = responseCache;
+    }
+
+    /**
+     * 在应用启动完成后执行，此时已经可以访问健康检查
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        long startTime = System.currentTimeMillis();
+        try {
+            if (areaService.getSnapshot().size() == 0) {
+                log.info("启动时没有获取到城市数据，重新加载");
+                areaService.reload(true);
+            }
+            if (areaService.getSnapshot().size() == 0) {
+                error = "没有城市数据";
+                log.error("城市数据预热失败: {}", error);
+                return;
+            }
+
+            warmedResponses = responseCache.warmUp();
+            elapsedMillis = System.currentTimeMillis() - startTime;
+            ready = true;
+            log.info("城市数据预热完成，生成{}个响应，耗时{}毫秒", warmedResponses, elapsedMillis);
+        } catch (Exception ex) {
+            error = ex.getMessage();
+            log.error("城市数据预热失败", ex);
+        }
+    }
+
+    /**
+     * 启动时预热失败的，在之后成功加载到数据时重新预热
+     */
+    @EventListener
+    public void onAreaRefreshed(AreaRefreshedEvent event) {
+        if (!ready && null != error && event.getSnapshot().size() > 0) {
+            error = null;
+            warmUp();
+        }
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder builder = ready ? Health.up() : Health.down();
+        builder.withDetail("areas", areaService.getSnapshot().size())
+                .withDetail("version", areaService.getVersion());
+        if (ready) {
+            builder.withDetail("warmedResponses", warmedResponses).withDetail("elapsedMillis", elapsedMillis);
+        } else if (null != error) {
+            builder.withDetail("error", error);
+        }
+        return builder.build();
+    }
+}
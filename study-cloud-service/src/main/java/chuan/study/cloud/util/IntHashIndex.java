@@ -0,0 +1,94 @@
+package chuan.study.cloud.util;
+
+import java.util.Arrays;
+
+/**
+ * int => int 的开放寻址哈希索引（线性探测）
+ * <p>
+ * 用于将业务ID映射为数组下标，查找过程不装箱、不分配对象。值必须为非负数，未找到时返回 {@link #NOT_FOUND}。
+ * 非线程安全，构建完成后只读使用时可以被多个线程共享。
+ *
+ * @author Jiang Chuan
+ * @version 1.0.0
+ * @since 2019-08-28
+ */
+public final class IntHashIndex {
+    /**
+     * 未找到时的返回值
+     */
+    public static final int NOT_FOUND = -1;
+
+    private final int[] keys;
+    private final int[] values;
+    private final int mask;
+    private int size;
+
+    /**
+     * @param expectedSize 预计存放的数量，容量为其两倍以上的 2 的幂，保证装载因子不超过 0.5
+     */
+    public IntHashIndex(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 2) * 2 - 1) << 1;
+        this.keys = new int[capacity];
+        this.values = new int[capacity];
+        this.mask = capacity - 1;
+        Arrays.fill(this.values, NOT_FOUND);
+    }
+
+    /**
+     * 写入映射，key 已存在时覆盖
+     *
+     * @param key   键
+     * @param value 非负的值
+     */
+    public void put(int key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("value must not be negative: " + value);
+        }
+        if (size >= (mask + 1) >> 1) {
+            throw new IllegalStateException("index is full, expected size is too small");
+        }
+
+        int slot = mix(key) & mask;
+        while (values[slot] != NOT_FOUND) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+    }
+
+    /**
+     * @param key 键
+     * @return 对应的值，不存在时返回 {@link #NOT_FOUND}
+     */
+    public int get(int key) {
+        int slot = mix(key) & mask;
+        int value;
+        while ((value = values[slot]) != NOT_FOUND) {
+            if (keys[slot] == key) {
+                return value;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * @return 已存放的数量
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 打散连续的ID，避免线性探测时聚集
+     */
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
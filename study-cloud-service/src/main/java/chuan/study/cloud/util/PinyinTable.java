@@ -0,0 +1,72 @@
+package chuan.study.cloud.util;
+
+import net.sourceforge.pinyin4j.PinyinHelper;
+import net.sourceforge.pinyin4j.format.HanyuPinyinCaseType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinOutputFormat;
+import net.sourceforge.pinyin4j.format.HanyuPinyinToneType;
+import net.sourceforge.pinyin4j.format.exception.BadHanyuPinyinOutputFormatCombination;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 汉字 => 拼音（小写、不带声调）的查找表
+ * <p>
+ * CJK 统一汉字基本区（U+4E00 ~ U+9FFF）在第一次使用时通过 pinyin4j 逐字生成一次，之后按下标直接读取，
+ * 转换时不再创建格式化对象，也不再查询 pinyin4j 的资源表；同一读音的字符串在表中只保存一份。
+ * 多音字取第一个读音，与直接调用 pinyin4j 的结果相同。
+ * <p>
+ * 不另外提供预先生成的资源文件：表由 pinyin4j 自带的数据生成，结果始终与所依赖的 pinyin4j 版本一致，升级时无需重新生成；
+ * 代价是第一次转换（通常是启动时构建区域快照）时读取一次 pinyin4j 的数据，约两万次查询。
+ *
+ * @author Jiang Chuan
+ * @version 1.0.0
+ * @since 2019-08-28
+ */
+final class PinyinTable {
+    private static final char FIRST = '\u4E00';
+    private static final char LAST = '\u9FFF';
+
+    /**
+     * pinyin4j 的格式化对象只在转换时读取，可以共享
+     */
+    private static final HanyuPinyinOutputFormat FORMATTER = new HanyuPinyinOutputFormat();
+    private static final String[] PINYINS = new String[LAST - FIRST + 1];
+
+    static {
+        FORMATTER.setCaseType(HanyuPinyinCaseType.LOWERCASE);
+        FORMATTER.setToneType(HanyuPinyinToneType.WITHOUT_TONE);
+
+        Map<String, String> syllables = new HashMap<>(512);
+        for (char ch = FIRST; ch <= LAST; ch++) {
+            String pinyin = lookup(ch);
+            if (null != pinyin) {
+                PINYINS[ch - FIRST] = syllables.computeIfAbsent(pinyin, k -> k);
+            }
+        }
+    }
+
+    private PinyinTable() {
+    }
+
+    /**
+     * @param ch 汉字
+     * @return 第一个读音，不是汉字时返回 null
+     */
+    static String get(char ch) {
+        if (ch >= FIRST && ch <= LAST) {
+            return PINYINS[ch - FIRST];
+        }
+        // 表外的字符（如 〇、扩展区汉字）很少出现，直接查询 pinyin4j
+        return lookup(ch);
+    }
+
+    private static String lookup(char ch) {
+        try {
+            String[] pinyins = PinyinHelper.toHanyuPinyinStringArray(ch, FORMATTER);
+            return null == pinyins || pinyins.length == 0 ? null : pinyins[0];
+        } catch (BadHanyuPinyinOutputFormatCombination ex) {
+            throw new IllegalStateException("拼音格式设置不正确", ex);
+        }
+    }
+}
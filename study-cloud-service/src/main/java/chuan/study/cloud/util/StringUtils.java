@@ -1,12 +1,6 @@
 package chuan.study.cloud.util;
 
 import lombok.extern.slf4j.Slf4j;
-import net.sourceforge.pinyin4j.PinyinHelper;
-import net.sourceforge.pinyin4j.format.HanyuPinyinCaseType;
-import net.sourceforge.pinyin4j.format.HanyuPinyinOutputFormat;
-import net.sourceforge.pinyin4j.format.HanyuPinyinToneType;
-
-import java.util.stream.IntStream;
 
 /**
  * @author Jiang Chuan
@@ -20,6 +14,11 @@ public class StringUtils extends org.apache.commons.lang3.StringUtils {
      */
     private static final char UNDER_LINE = '_';
 
+    /**
+     * 计算编辑距离时使用的两行缓冲区，按线程复用
+     */
+    private static final ThreadLocal<int[][]> EDIT_DISTANCE_ROWS = ThreadLocal.withInitial(() -> new int[2][32]);
+
     /**
      * 将带有下划线的字符串转换成驼峰字符串
      * download_count => downloadCount
@@ -82,7 +81,7 @@ public class StringUtils extends org.apache.commons.lang3.StringUtils {
     }
 
     /**
-     * 汉字转换位汉语拼音，英文字符不变
+     * 汉字转换位汉语拼音，英文字符不变，无法转换的字符忽略；汉字通过 {@link PinyinTable} 查表转换
      *
      * @param chinese       汉字
      * @param firstCharOnly 只取首字母
@@ -93,24 +92,22 @@ public class StringUtils extends org.apache.commons.lang3.StringUtils {
             return StringUtils.EMPTY;
         }
 
-        char[] chars = chinese.toCharArray();
-        HanyuPinyinOutputFormat formatter = new HanyuPinyinOutputFormat();
-        formatter.setCaseType(HanyuPinyinCaseType.LOWERCASE);
-        formatter.setToneType(HanyuPinyinToneType.WITHOUT_TONE);
-
-        StringBuilder pinyinBuilder = new StringBuilder();
-        IntStream.range(0, chars.length).forEach(idx -> {
-            if (chars[idx] > 128) {
-                try {
-                    String pinyin = PinyinHelper.toHanyuPinyinStringArray(chars[idx], formatter)[0];
-                    pinyinBuilder.append(firstCharOnly ? pinyin.charAt(0) : pinyin);
-                } catch (Exception ex) {
-                    log.warn(ex.getMessage());
+        StringBuilder pinyinBuilder = new StringBuilder(firstCharOnly ? chinese.length() : chinese.length() * 6);
+        for (int idx = 0; idx < chinese.length(); idx++) {
+            char ch = chinese.charAt(idx);
+            if (ch > 128) {
+                String pinyin = PinyinTable.get(ch);
+                if (null == pinyin) {
+                    log.debug("无法转换为拼音的字符: {}", ch);
+                } else if (firstCharOnly) {
+                    pinyinBuilder.append(pinyin.charAt(0));
+                } else {
+                    pinyinBuilder.append(pinyin);
                 }
             } else {
-                pinyinBuilder.append(chars[idx]);
+                pinyinBuilder.append(ch);
             }
-        });
+        }
         return pinyinBuilder.toString();
     }
 
@@ -147,53 +144,64 @@ public class StringUtils extends org.apache.commons.lang3.StringUtils {
      * 参考：https://blog.csdn.net/JavaReact/article/details/82144732
      */
     public static float getSimilarityRatio(String str, String target) {
-        return 1 - (float) compareString(str, target) / Math.max(str.length(), target.length());
+        return 1 - (float) getEditDistance(str, target, Integer.MAX_VALUE) / Math.max(str.length(), target.length());
     }
 
     /**
-     * 比较两个字符串的相似度
-     * 核心算法：用一个二维数组记录每个字符串是否相同，如果相同记为0，不相同记为1，每行每列相同个数累加
-     * 则数组最后一个数为不相同的总数，从而判断这两个字符的相识度
+     * 计算两个字符串的编辑距离，英文字母不区分大小写
+     * <p>
+     * 只保留两行结果，缓冲区按线程复用，不再为每次比较创建二维数组；
+     * 每一行的最小值不会小于上一行的最小值，某一行全部超过 maxDistance 时提前结束。
      *
-     * @param str    源字符
-     * @param target 目标字条
-     * @return
+     * @param str         源字符
+     * @param target      目标字符
+     * @param maxDistance 关心的最大距离
+     * @return 编辑距离，超过 maxDistance 时返回 maxDistance + 1
      */
-    private static int compareString(String str, String target) {
-        int d[][];
+    public static int getEditDistance(String str, String target, int maxDistance) {
         int n = str.length(), m = target.length();
-        int i, j, temp;
-        char ch1, ch2;
+        // 编辑距离不会超过较长的字符串的长度，同时避免 maxDistance + 1 溢出
+        int limit = Math.min(maxDistance, Math.max(n, m));
+        if (Math.abs(n - m) > limit) {
+            return limit + 1;
+        }
         if (n == 0) {
             return m;
         }
-
         if (m == 0) {
             return n;
         }
 
-        d = new int[n + 1][m + 1];
-        for (i = 0; i <= n; i++) {
-            d[i][0] = i;
+        int[][] rows = EDIT_DISTANCE_ROWS.get();
+        if (rows[0].length <= m) {
+            rows = new int[2][m + 1];
+            EDIT_DISTANCE_ROWS.set(rows);
         }
-
-        for (j = 0; j <= m; j++) {
-            d[0][j] = j;
+        int[] previous = rows[0];
+        int[] current = rows[1];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = j;
         }
 
-        for (i = 1; i <= n; i++) {
-            ch1 = str.charAt(i - 1);
-            for (j = 1; j <= m; j++) {
-                ch2 = target.charAt(j - 1);
-                if (ch1 == ch2 || ch1 == ch2 + 32 || ch1 + 32 == ch2) {
-                    temp = 0;
-                } else {
-                    temp = 1;
-                }
-                d[i][j] = min(d[i - 1][j] + 1, d[i][j - 1] + 1, d[i - 1][j - 1] + temp);
+        for (int i = 1; i <= n; i++) {
+            char ch1 = str.charAt(i - 1);
+            current[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= m; j++) {
+                char ch2 = target.charAt(j - 1);
+                int temp = ch1 == ch2 || ch1 == ch2 + 32 || ch1 + 32 == ch2 ? 0 : 1;
+                current[j] = min(previous[j] + 1, current[j - 1] + 1, previous[j - 1] + temp);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > limit) {
+                return limit + 1;
             }
+
+            int[] swap = previous;
+            previous = current;
+            current = swap;
         }
-        return d[n][m];
+        return Math.min(previous[m], limit + 1);
     }
 
     /**
@@ -1,6 +1,10 @@
 package chuan.study.cloud.web.controller;
 
+import chuan.study.cloud.exception.BusinessException;
+import chuan.study.cloud.exception.SystemException;
 import chuan.study.cloud.pojo.domain.ApiOut;
+import chuan.study.cloud.pojo.domain.area.AreaSnapshot;
+import chuan.study.cloud.pojo.dto.AddressDTO;
 import chuan.study.cloud.pojo.enums.ResponseCodeEnum;
 import chuan.study.cloud.pojo.model.Area;
 import chuan.study.cloud.pojo.vo.AreaVO;
@@ -8,30 +12,49 @@ import chuan.study.cloud.service.IAreaService;
 import chuan.study.cloud.util.NumberUtils;
 import chuan.study.cloud.web.annotation.AuthPolicy;
 import chuan.study.cloud.web.annotation.Authenticate;
-import chuan.study.cloud.web.annotation.JsonResult;
-import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.Caffeine;
+import chuan.study.cloud.web.json.AreaResponseCache;
+import chuan.study.cloud.web.json.CachedJsonResponse;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiImplicitParam;
 import io.swagger.annotations.ApiImplicitParams;
 import io.swagger.annotations.ApiOperation;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.ArrayUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
-import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -47,27 +70,83 @@ import java.util.stream.Collectors;
 @Api(value = "AreaController", tags = {"城市/地区"})
 public class AreaController extends BaseController {
     private final IAreaService areaService;
+    private final AreaResponseCache responseCache;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
 
     /**
-     * 城市列表缓存
+     * 批量查询时一次允许的最大城市ID数量
      */
-    private static Cache<String, List<AreaVO>> areaTreeCache = Caffeine.newBuilder()
-            .initialCapacity(5).maximumSize(1_000)
-            .expireAfterAccess(30, TimeUnit.MINUTES)
-            .build();
+    @Value("${area.batch.max-ids:50000}")
+    private int maxBatchIds;
+
+    /**
+     * 通过 GET 参数查询时一次允许的最大城市ID数量，结果不是流式写出，同时受 URL 长度限制
+     */
+    @Value("${area.batch.max-query-ids:100}")
+    private int maxQueryIds;
+
+    /**
+     * 按邮编、完整名称查询时最多返回的城市数量
+     */
+    @Value("${area.lookup.max-results:100}")
+    private int maxLookupResults;
+
+    /**
+     * 批量匹配地址的并行线程数，为 0 时使用CPU核数
+     */
+    @Value("${area.resolve.parallelism:0}")
+    private int resolveParallelism;
+
+    /**
+     * 批量匹配地址时每读入多少个地址并行匹配一次
+     */
+    @Value("${area.resolve.chunk-size:512}")
+    private int resolveChunkSize;
+
+    /**
+     * NDJSON 格式，每行一个 JSON 值
+     */
+    private static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType(APPLICATION_NDJSON_VALUE);
+
+    /**
+     * 城市树最多返回的层数
+     */
+    private static final int MAX_TREE_DEPTH = 5;
+
+    /**
+     * 批量匹配地址专用的线程池，不占用公共的 ForkJoinPool
+     */
+    private ForkJoinPool resolvePool;
 
     @Autowired
-    public AreaController(IAreaService areaService) {
+    public AreaController(IAreaService areaService, AreaResponseCache responseCache, ObjectMapper objectMapper,
+                          MeterRegistry meterRegistry) {
         this.areaService = areaService;
+        this.responseCache = responseCache;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    private void initialize() {
+        this.resolvePool = new ForkJoinPool(resolveParallelism > 0 ? resolveParallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    private void destroy() {
+        resolvePool.shutdownNow();
     }
 
     /**
      * 刷新缓存
+     *
+     * @param full [可选] 是否全量加载，默认只加载更新过的数据
      */
     @RequestMapping(path = "/refresh", produces = MediaType.APPLICATION_JSON_UTF8_VALUE, method = {RequestMethod.POST, RequestMethod.GET})
-    public ApiOut<Boolean> refresh() {
-        areaService.refresh();
-        areaTreeCache.invalidateAll();
+    public ApiOut<Boolean> refresh(@RequestParam(name = "full", required = false, defaultValue = "false") boolean full) {
+        areaService.refresh(full);
         return ApiOut.newSuccessResponse(true);
     }
 
@@ -78,11 +157,8 @@ public class AreaController extends BaseController {
      */
     @ApiOperation(value = "显示省份列表", response = ApiOut.class)
     @GetMapping(path = "/provinces", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-    @JsonResult(type = AreaVO.class, exclude = {"cityCode", "zipCode", "level", "createdTime", "updatedTime"})
-    public ApiOut<List<AreaVO>> getProvinces() {
-        return new ApiOut.Builder<List<AreaVO>>()
-                .data(areaTreeCache.get("provinces", key -> areaService.findProvinces().stream().map(this::toVo).collect(Collectors.toList())))
-                .build();
+    public ResponseEntity<byte[]> getProvinces(WebRequest webRequest) {
+        return toResponseEntity(responseCache.getProvinces(), webRequest);
     }
 
     /**
@@ -94,12 +170,8 @@ public class AreaController extends BaseController {
     @ApiOperation(value = "显示城市链", response = AreaVO.class)
     @ApiImplicitParam(name = "areaId", value = "的城市ID", required = true)
     @GetMapping(path = "/{areaId}/chain", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-    public ApiOut<List<AreaVO>> getChainAreas(@PathVariable Integer areaId) {
-        return new ApiOut.Builder<List<AreaVO>>().data(
-                areaTreeCache.get("chain_" + areaId,
-                        key -> areaService.findChain(areaId)
-                                .stream().map(this::toVo)
-                                .collect(Collectors.toList()))).build();
+    public ResponseEntity<byte[]> getChainAreas(@PathVariable Integer areaId, WebRequest webRequest) {
+        return toResponseEntity(responseCache.getChain(areaId), webRequest);
     }
 
     /**
@@ -115,12 +187,10 @@ public class AreaController extends BaseController {
             @ApiImplicitParam(name = "level", value = "返回城市级数", example = "2", dataType = "int")
     })
     @GetMapping(path = "/parent/{parentId}", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-    public ApiOut<List<AreaVO>> getAreasByParent(@PathVariable(name = "parentId") Integer parentId,
-                                                 @RequestParam(name = "level", required = false) Integer level) {
-        String cacheKey = "parent_" + parentId + "_" + level;
-        return new ApiOut.Builder<List<AreaVO>>()
-                .data(areaTreeCache.get(cacheKey, key -> toTree(areaService.findByParent(parentId, level))))
-                .build();
+    public ResponseEntity<byte[]> getAreasByParent(@PathVariable(name = "parentId") Integer parentId,
+                                                   @RequestParam(name = "level", required = false) Integer level,
+                                                   WebRequest webRequest) {
+        return toResponseEntity(responseCache.getByParent(parentId, normalizeLevel(level)), webRequest);
     }
 
     /**
@@ -136,11 +206,78 @@ public class AreaController extends BaseController {
             @ApiImplicitParam(name = "level", value = "返回城市级数", example = "2", dataType = "int")
     })
     @GetMapping(path = "/code/{cityCode}", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-    public ApiOut<List<AreaVO>> getAreasByCityCode(@PathVariable String cityCode,
-                                                   @RequestParam(name = "level", required = false) Integer level) {
-        String cacheKey = "code_" + cityCode + "_" + level;
+    public ResponseEntity<byte[]> getAreasByCityCode(@PathVariable String cityCode,
+                                                     @RequestParam(name = "level", required = false) Integer level,
+                                                     WebRequest webRequest) {
+        return toResponseEntity(responseCache.getByCityCode(cityCode, normalizeLevel(level)), webRequest);
+    }
+
+    /**
+     * 根据邮编查询，可以按前缀匹配
+     *
+     * @param zipCode 邮编或邮编前缀
+     * @param prefix  [可选] 是否按前缀匹配
+     * @return 查询到的城市数据，最多返回 area.lookup.max-results 条
+     */
+    @ApiOperation(value = "根据邮编查询", response = AreaVO.class)
+    @ApiImplicitParams({
+            @ApiImplicitParam(name = "zipCode", value = "邮编或邮编前缀", required = true),
+            @ApiImplicitParam(name = "prefix", value = "是否按前缀匹配", example = "false", dataType = "boolean")
+    })
+    @GetMapping(path = "/zip/{zipCode}", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public ApiOut<List<AreaVO>> getAreasByZipCode(@PathVariable String zipCode,
+                                                  @RequestParam(name = "prefix", required = false, defaultValue = "false") boolean prefix,
+                                                  WebRequest webRequest) {
+        if (checkNotModified(webRequest, areaService.getVersion())) {
+            return null;
+        }
+        return new ApiOut.Builder<List<AreaVO>>().data(toVoList(areaService.findByZipCode(zipCode, prefix))).build();
+    }
+
+    /**
+     * 根据完整名称查询，可以按前缀匹配
+     *
+     * @param mergedName 完整名称或其前缀，如 中国,江苏省,南京市,玄武区
+     * @param prefix     [可选] 是否按前缀匹配
+     * @return 查询到的城市数据，最多返回 area.lookup.max-results 条
+     */
+    @ApiOperation(value = "根据完整名称查询", response = AreaVO.class)
+    @ApiImplicitParams({
+            @ApiImplicitParam(name = "name", value = "完整名称或其前缀，以','分隔各级名称", required = true),
+            @ApiImplicitParam(name = "prefix", value = "是否按前缀匹配", example = "false", dataType = "boolean")
+    })
+    @GetMapping(path = "/merged-name", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public ApiOut<List<AreaVO>> getAreasByMergedName(@RequestParam("name") String mergedName,
+                                                     @RequestParam(name = "prefix", required = false, defaultValue = "false") boolean prefix,
+                                                     WebRequest webRequest) {
+        if (checkNotModified(webRequest, areaService.getVersion())) {
+            return null;
+        }
+        return new ApiOut.Builder<List<AreaVO>>().data(toVoList(areaService.findByMergedName(mergedName, prefix))).build();
+    }
+
+    /**
+     * 城市名称联想，支持汉字、全拼和拼音首字母的前缀
+     *
+     * @param keyword 输入的前缀
+     * @param limit   [可选] 返回的数量，默认 10，最多 AreaSnapshot.MAX_SUGGESTIONS
+     * @return 匹配的城市，级别小的排在前面
+     */
+    @ApiOperation(value = "城市名称联想", response = AreaVO.class)
+    @ApiImplicitParams({
+            @ApiImplicitParam(name = "keyword", value = "汉字、全拼或拼音首字母的前缀", required = true),
+            @ApiImplicitParam(name = "limit", value = "返回的数量", example = "10", dataType = "int")
+    })
+    @GetMapping(path = "/suggest", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public ApiOut<List<AreaVO>> suggest(@RequestParam("keyword") String keyword,
+                                        @RequestParam(name = "limit", required = false, defaultValue = "10") int limit,
+                                        WebRequest webRequest) {
+        if (checkNotModified(webRequest, areaService.getVersion())) {
+            return null;
+        }
+        int size = Math.max(1, Math.min(limit, AreaSnapshot.MAX_SUGGESTIONS));
         return new ApiOut.Builder<List<AreaVO>>()
-                .data(areaTreeCache.get(cacheKey, key -> toTree(areaService.findByCityCode(cityCode, level))))
+                .data(areaService.suggest(keyword, size).stream().map(this::toVo).collect(Collectors.toList()))
                 .build();
     }
 
@@ -153,24 +290,160 @@ public class AreaController extends BaseController {
     @ApiOperation(value = "根据的城市ID查询", response = AreaVO.class)
     @ApiImplicitParam(name = "ids", value = "的城市ID, 多个以','分隔", required = true)
     @GetMapping(produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-    public ApiOut<List<AreaVO>> getAreasByIds(@RequestParam("ids") Integer[] areaIds) {
+    public ApiOut<List<AreaVO>> getAreasByIds(@RequestParam("ids") Integer[] areaIds, WebRequest webRequest) {
         if (ArrayUtils.isEmpty(areaIds)) {
             log.warn("城市ID不能为空");
             return new ApiOut.Builder<List<AreaVO>>().code(ResponseCodeEnum.PARAMETER_REQUIRED).message("城市ID不能不空").build();
         }
 
-        // 最多一次允许100个城市ID进行查询
-        int maxAllowCount = 100;
-        if (areaIds.length > maxAllowCount) {
-            log.warn("传入的城市ID[{}]超过最大允许的数量[{}]", areaIds.length, maxAllowCount);
+        if (areaIds.length > maxQueryIds) {
+            log.warn("传入的城市ID[{}]超过最大允许的数量[{}]", areaIds.length, maxQueryIds);
             return new ApiOut.Builder<List<AreaVO>>().code(ResponseCodeEnum.PARAMETER_RANGE_ERROR).message("城市ID太多").build();
         }
 
+        if (checkNotModified(webRequest, areaService.getVersion())) {
+            return null;
+        }
+
         return new ApiOut.Builder<List<AreaVO>>()
                 .data(areaService.findByIds(areaIds).values().stream().map(this::toVo).collect(Collectors.toList()))
                 .build();
     }
 
+    /**
+     * 批量查询大量城市，结果按传入顺序边查边写出，不存在的ID直接跳过
+     *
+     * @param areaIds 城市ID数组，如 [110000, 320100]
+     * @return 查询到的城市数据
+     */
+    @ApiOperation(value = "根据的城市ID批量查询", response = AreaVO.class)
+    @PostMapping(path = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public StreamingResponseBody getAreasInBatch(@RequestBody int[] areaIds) {
+        if (ArrayUtils.isEmpty(areaIds)) {
+            log.warn("城市ID不能为空");
+            throw new BusinessException(false, ResponseCodeEnum.PARAMETER_REQUIRED, "ids");
+        }
+
+        if (areaIds.length > maxBatchIds) {
+            log.warn("传入的城市ID[{}]超过最大允许的数量[{}]", areaIds.length, maxBatchIds);
+            throw new BusinessException(false, ResponseCodeEnum.BUSINESS_ERROR_DEFINE, "城市ID太多，最多允许" + maxBatchIds + "个");
+        }
+
+        return output -> {
+            // 逐条写出区域，不生成中间的 VO 和集合
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(output)) {
+                writeDataStart(generator);
+                areaService.findByIds(areaIds, area -> writeArea(generator, area));
+                writeDataEnd(generator);
+            }
+        };
+    }
+
+    /**
+     * 根据地址批量匹配省市区，请求体为 JSON 数组或 NDJSON（每行一个地址），边读边匹配边写出
+     * <p>
+     * 地址可以是 {"province":"江苏省","city":"南京市","district":"玄武区"} 这样的对象，也可以直接是地址文本；
+     * 每读入 area.resolve.chunk-size 个地址在专用线程池中并行匹配一次，结果按传入顺序写出，
+     * 每个地址对应一个数组，匹配不到时为空数组。JSON 请求的结果放在 data 中，NDJSON 请求的结果同样每行一个。
+     * <p>
+     * 边匹配边写出时状态码已经发出，所以处理状态放在结果之后：JSON 请求的 state、code、message 在 data 之后，
+     * NDJSON 请求最后一行为 {"state":..,"code":..,"message":..}；中途出错时同样写出错误状态，不会只留下截断的结果
+     *
+     * @return 每个地址匹配到的省、市、区
+     */
+    @ApiOperation(value = "根据地址批量匹配城市", response = AreaVO.class)
+    @PostMapping(path = "/resolve", consumes = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<StreamingResponseBody> resolveAddresses(HttpServletRequest request) throws IOException {
+        boolean ndjson = APPLICATION_NDJSON.isCompatibleWith(MediaType.parseMediaType(request.getContentType()));
+        JsonParser parser = objectMapper.getFactory().createParser(request.getInputStream());
+        if (!ndjson && JsonToken.START_ARRAY != parser.nextToken()) {
+            parser.close();
+            log.warn("批量匹配地址的请求内容不是数组");
+            throw new BusinessException(false, ResponseCodeEnum.BUSINESS_ERROR_DEFINE, "请求内容应为地址数组");
+        }
+
+        // 整批地址使用同一个快照，匹配过程中发生刷新也不会混入新数据
+        AreaSnapshot snapshot = areaService.getSnapshot();
+        String format = ndjson ? "ndjson" : "json";
+        return ResponseEntity.ok().contentType(ndjson ? APPLICATION_NDJSON : MediaType.APPLICATION_JSON_UTF8).body(output -> {
+            long start = System.nanoTime();
+            int count = 0;
+            String outcome = "success";
+            try (JsonParser input = parser; JsonGenerator generator = objectMapper.getFactory().createGenerator(output)) {
+                if (ndjson) {
+                    generator.setRootValueSeparator(new SerializedString("\n"));
+                } else {
+                    generator.writeStartObject();
+                    generator.writeArrayFieldStart("data");
+                }
+
+                try {
+                    List<AddressDTO> chunk = new ArrayList<>(resolveChunkSize);
+                    for (JsonToken token = input.nextToken(); null != token && JsonToken.END_ARRAY != token; token = input.nextToken()) {
+                        chunk.add(readAddress(input));
+                        if (chunk.size() >= resolveChunkSize) {
+                            count += writeResolved(generator, snapshot, chunk);
+                            chunk.clear();
+                        }
+                    }
+                    count += writeResolved(generator, snapshot, chunk);
+                    writeResolveTrailer(generator, ndjson, ResponseCodeEnum.SUCCESS, ResponseCodeEnum.SUCCESS.getDesc());
+                } catch (Exception ex) {
+                    // 状态码已经是 200，出错时在结果末尾写出错误状态，客户端据此判断结果不完整
+                    outcome = "error";
+                    log.error("批量匹配地址失败, 已写出{}个结果", count, ex);
+                    writeResolveError(generator, ndjson, ex);
+                }
+            }
+
+            long elapsed = System.nanoTime() - start;
+            Timer.builder("area.resolve.batch").tag("format", format).tag("outcome", outcome)
+                    .register(meterRegistry).record(elapsed, TimeUnit.NANOSECONDS);
+            DistributionSummary.builder("area.resolve.batch.size").tag("format", format).tag("outcome", outcome)
+                    .register(meterRegistry).record(count);
+            log.info("批量匹配地址完成, 格式:{}, 结果:{}, 数量:{}, 耗时:{}ms", format, outcome, count, TimeUnit.NANOSECONDS.toMillis(elapsed));
+        });
+    }
+
+    /**
+     * 获取完整的省市区树，直接按快照中的上下级索引边遍历边写出
+     * <p>
+     * 响应由容器按 server.compression 配置进行 gzip 压缩
+     *
+     * @param parentId [可选] 上级城市ID，默认从省份开始
+     * @param depth    [可选] 返回的层数，默认 3 层
+     * @return 城市树
+     */
+    @ApiOperation(value = "显示城市树", response = AreaVO.class)
+    @ApiImplicitParams({
+            @ApiImplicitParam(name = "parentId", value = "上级城市ID，默认从省份开始", dataType = "int"),
+            @ApiImplicitParam(name = "depth", value = "返回的层数", example = "3", dataType = "int")
+    })
+    @GetMapping(path = "/tree", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public StreamingResponseBody getAreaTree(@RequestParam(name = "parentId", required = false) Integer parentId,
+                                             @RequestParam(name = "depth", required = false, defaultValue = "3") int depth,
+                                             WebRequest webRequest) {
+        if (depth < 1 || depth > MAX_TREE_DEPTH) {
+            log.warn("城市树的层数[{}]不在允许的范围内[1, {}]", depth, MAX_TREE_DEPTH);
+            throw new BusinessException(false, ResponseCodeEnum.BUSINESS_ERROR_DEFINE, "城市树的层数只能在1到" + MAX_TREE_DEPTH + "之间");
+        }
+
+        // 整棵树使用同一个快照，写出过程中发生刷新也不会混入新数据
+        AreaSnapshot snapshot = areaService.getSnapshot();
+        if (checkNotModified(webRequest, snapshot.getVersion())) {
+            return null;
+        }
+
+        List<Area> roots = NumberUtils.isPositive(parentId) ? snapshot.getChildren(parentId) : snapshot.getProvinces();
+        return output -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(output)) {
+                writeDataStart(generator);
+                writeTree(generator, snapshot, roots, depth);
+                writeDataEnd(generator);
+            }
+        };
+    }
+
 
     private AreaVO toVo(Area area) {
         if (null == area) {
@@ -179,32 +452,178 @@ public class AreaController extends BaseController {
         return new AreaVO(area);
     }
 
-    private List<AreaVO> toTree(List<Area> areas) {
-        if (CollectionUtils.isEmpty(areas)) {
-            return new ArrayList<>(0);
+    /**
+     * 转换查询结果，前缀匹配可能命中大量数据，只返回前 maxLookupResults 条
+     */
+    private List<AreaVO> toVoList(List<Area> areas) {
+        return areas.stream().limit(maxLookupResults).map(this::toVo).collect(Collectors.toList());
+    }
+
+    /**
+     * 为空或不是正数的级别都表示全部，归一后作为缓存键，避免同样的结果缓存多份
+     */
+    private static int normalizeLevel(Integer level) {
+        return NumberUtils.isPositive(level) ? level : 0;
+    }
+
+    private ResponseEntity<byte[]> toResponseEntity(CachedJsonResponse response, WebRequest webRequest) {
+        if (checkNotModified(webRequest, response.getVersion())) {
+            return null;
         }
+        return response.toResponseEntity(webRequest);
+    }
 
-        // 找出最小层级，并将 Area 转换成 VO Map
-        int[] minLevels = {Integer.MAX_VALUE};
-        Map<Integer, AreaVO> areaMap = areas.stream().map(this::toVo)
-                .filter(vo -> NumberUtils.isNotNull(vo.getParentId()))
-                .peek(vo -> minLevels[0] = Math.min(minLevels[0], Optional.ofNullable(vo.getLevel()).orElse(1)))
-                .collect(Collectors.toMap(AreaVO::getId, area -> area));
+    /**
+     * 以数据版本作为 ETag，请求头 If-None-Match 与之相同时直接返回 304
+     * <p>
+     * 版本由数据内容计算得到，数据相同的实例之间、重启前后 ETag 都相同，负载均衡切换实例时缓存依然有效；
+     * 响应中的服务器时间每次都不同，所以使用弱 ETag
+     *
+     * @return 数据未变化时返回 true，此时接口直接返回 null 即可
+     */
+    private boolean checkNotModified(WebRequest webRequest, long version) {
+        return webRequest.checkNotModified("W/\"" + Long.toHexString(version) + "\"");
+    }
 
-        // 先按需排序，生成结果不再排序
-        List<AreaVO> vos = new ArrayList<>(areaMap.values());
-        vos.sort(Comparator.comparingInt(AreaVO::getId));
+    /**
+     * 按 ApiOut 的格式写出开头，直到 data 数组开始
+     */
+    private void writeDataStart(JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("state", ResponseCodeEnum.SUCCESS.name());
+        generator.writeNumberField("code", ResponseCodeEnum.SUCCESS.getCode());
+        generator.writeStringField("message", ResponseCodeEnum.SUCCESS.getDesc());
+        generator.writeArrayFieldStart("data");
+    }
+
+    private void writeDataEnd(JsonGenerator generator) throws IOException {
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
 
-        // 组织成树的形式
-        List<AreaVO> firstLevelAreas = new ArrayList<>();
-        vos.forEach(area -> {
-            Integer level = Optional.ofNullable(area.getLevel()).orElse(1);
-            if (level > minLevels[0]) {
-                Optional.ofNullable(areaMap.get(area.getParentId())).ifPresent(vo -> vo.addChild(area));
-            } else if (level == minLevels[0]) {
-                firstLevelAreas.add(area);
+    private void writeArea(JsonGenerator generator, Area area) {
+        try {
+            generator.writeStartObject();
+            AreaVO.writeFields(generator, area);
+            generator.writeEndObject();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * 深度优先写出区域及其下级，与 {@link AreaVO} 一样只在有下级时输出 children
+     */
+    private void writeTree(JsonGenerator generator, AreaSnapshot snapshot, List<Area> areas, int depth) throws IOException {
+        for (Area area : areas) {
+            generator.writeStartObject();
+            AreaVO.writeFields(generator, area);
+            List<Area> children = depth > 1 ? snapshot.getChildren(area.getId()) : ImmutableList.of();
+            if (!children.isEmpty()) {
+                generator.writeArrayFieldStart("children");
+                writeTree(generator, snapshot, children, depth - 1);
+                generator.writeEndArray();
             }
-        });
-        return firstLevelAreas;
+            generator.writeEndObject();
+        }
+    }
+
+    /**
+     * 批量匹配地址出错时写出错误状态；连接已经断开时无法写出，忽略即可
+     * <p>
+     * 只有带错误码的 {@link SystemException} 返回异常中的消息，其他异常（SQL、空指针等）只在调用处记录日志，
+     * 客户端收到的是 {@link ResponseCodeEnum#SYSTEM_ERROR} 的默认描述，不暴露内部信息
+     */
+    private void writeResolveError(JsonGenerator generator, boolean ndjson, Exception ex) {
+        ResponseCodeEnum responseCode = ResponseCodeEnum.SYSTEM_ERROR;
+        String message = ResponseCodeEnum.SYSTEM_ERROR.getDesc();
+        if (ex instanceof SystemException && null != ((SystemException) ex).getResponseCode()) {
+            responseCode = ((SystemException) ex).getResponseCode();
+            message = ex.getMessage();
+        } else if (ex instanceof JsonProcessingException) {
+            responseCode = ResponseCodeEnum.PARAMETER_FORMAT_ERROR;
+            message = "请求内容不是有效的 JSON";
+        }
+
+        try {
+            writeResolveTrailer(generator, ndjson, responseCode, message);
+        } catch (Exception writeEx) {
+            log.warn("批量匹配地址的错误状态写出失败: {}", writeEx.getMessage());
+        }
+    }
+
+    /**
+     * 写出批量匹配地址的处理状态：JSON 结束 data 数组后写在同一个对象中，NDJSON 单独作为最后一行
+     */
+    private void writeResolveTrailer(JsonGenerator generator, boolean ndjson, ResponseCodeEnum responseCode, String message)
+            throws IOException {
+        // 出错时可能停在某个地址的结果中间，先结束 data 或 NDJSON 当前行中未结束的数组和对象
+        JsonStreamContext context = generator.getOutputContext();
+        while (!context.inRoot() && !(context.inArray() && !ndjson && context.getParent().getParent().inRoot())) {
+            if (context.inArray()) {
+                generator.writeEndArray();
+            } else {
+                generator.writeEndObject();
+            }
+            context = generator.getOutputContext();
+        }
+
+        if (ndjson) {
+            generator.writeStartObject();
+        } else {
+            generator.writeEndArray();
+        }
+        generator.writeStringField("state", responseCode.name());
+        generator.writeNumberField("code", responseCode.getCode());
+        generator.writeStringField("message", message);
+        generator.writeEndObject();
+        if (ndjson) {
+            generator.writeRaw('\n');
+        }
+    }
+
+    /**
+     * 读取当前位置的一个地址，字符串作为地址文本，其他类型的值跳过并返回 null
+     */
+    private AddressDTO readAddress(JsonParser parser) throws IOException {
+        switch (parser.currentToken()) {
+            case VALUE_STRING:
+                return new AddressDTO(null, null, null, parser.getText());
+            case START_OBJECT:
+                return objectMapper.readValue(parser, AddressDTO.class);
+            default:
+                parser.skipChildren();
+                return null;
+        }
+    }
+
+    /**
+     * 在专用线程池中并行匹配一段地址，再按传入顺序写出
+     *
+     * @return 写出的地址数量
+     */
+    private int writeResolved(JsonGenerator generator, AreaSnapshot snapshot, List<AddressDTO> addresses) throws IOException {
+        if (addresses.isEmpty()) {
+            return 0;
+        }
+
+        List<List<Area>> results;
+        try {
+            results = resolvePool.submit(() -> addresses.parallelStream()
+                    .map(address -> areaService.findByAddress(snapshot, address))
+                    .collect(Collectors.toList())).get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SystemException("批量匹配地址被中断", ex);
+        } catch (ExecutionException ex) {
+            throw new SystemException("批量匹配地址失败", ex.getCause());
+        }
+
+        for (List<Area> areas : results) {
+            generator.writeStartArray();
+            areas.forEach(area -> writeArea(generator, area));
+            generator.writeEndArray();
+        }
+        return results.size();
     }
 }
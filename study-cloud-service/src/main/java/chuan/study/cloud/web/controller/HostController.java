@@ -4,7 +4,6 @@ import chuan.study.cloud.pojo.domain.ApiOut;
 import chuan.study.cloud.pojo.model.Area;
 import chuan.study.cloud.pojo.vo.AreaVO;
 import chuan.study.cloud.service.IAreaService;
-import chuan.study.cloud.util.StringUtils;
 import chuan.study.cloud.web.annotation.AuthPolicy;
 import chuan.study.cloud.web.annotation.Authenticate;
 import chuan.study.cloud.web.annotation.JsonResult;
@@ -59,42 +58,8 @@ public class HostController extends BaseController {
             return ApiOut.newParameterRequiredResponse("IP地址不正确");
         }
 
-        String cityName = ipZone.getMainInfo();
         log.info("IP:{}, 地址:{}", ip, ipZone);
-        String province = "", city = "", district = "";
-
-        // 获取省份
-        int provinceIndex = cityName.indexOf("省") + 1;
-        if (provinceIndex > 0) {
-            province = cityName.substring(0, provinceIndex);
-            cityName = cityName.substring(provinceIndex);
-        }
-
-        // 如果没取到省，可能是直辖市
-        if (StringUtils.isBlank(province)) {
-            provinceIndex = cityName.indexOf("市") + 1;
-            if (provinceIndex > 0) {
-                province = cityName.substring(0, provinceIndex);
-                city = province;
-                cityName = cityName.substring(provinceIndex);
-            }
-
-        }
-
-        // 获取市
-        int cityIndex = cityName.indexOf("市") + 1;
-        if (cityIndex > 0) {
-            city = cityName.substring(0, cityIndex);
-            cityName = cityName.substring(cityIndex);
-        }
-
-        // 获取区
-        int districtIndex = cityName.indexOf("区") + 1;
-        if (districtIndex > 0) {
-            district = cityName.substring(0, districtIndex);
-        }
-
-        List<Area> areas = areaService.findByAddress(province, city, district);
+        List<Area> areas = areaService.findByAddress(ipZone.getMainInfo());
         return ApiOut.newSuccessResponse(areas.stream().map(AreaVO::new).collect(Collectors.toList()));
     }
 }
@@ -0,0 +1,195 @@
+package chuan.study.cloud.web.json;
+
+import chuan.study.cloud.exception.SystemException;
+import chuan.study.cloud.pojo.domain.ApiOut;
+import chuan.study.cloud.pojo.domain.area.AreaRefreshedEvent;
+import chuan.study.cloud.pojo.domain.area.AreaSnapshot;
+import chuan.study.cloud.pojo.model.Area;
+import chuan.study.cloud.pojo.vo.AreaVO;
+import chuan.study.cloud.service.IAreaService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
+
+/**
+ * 区域接口序列化好的响应
+ * <p>
+ * 按接口分开缓存，避免扫描某一类接口时挤掉其他接口的热点数据；数据刷新后在后台重新生成，期间仍返回旧的响应，
+ * ETag 使用生成响应时的数据版本，其中的服务器时间为生成缓存的时间。接口和启动预热共用这些缓存。
+ *
+ * @author Jiang Chuan
+ * @version 1.0.0
+ * @since 2019-08-28
+ */
+@Component
+public class AreaResponseCache {
+    /**
+     * 省份缓存只有一个键
+     */
+    private static final String PROVINCES_KEY = "provinces";
+
+    /**
+     * 省份列表不返回的字段
+     */
+    private static final String[] PROVINCE_EXCLUDES = {"cityCode", "zipCode", "level", "createdTime", "updatedTime"};
+
+    private final IAreaService areaService;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 缓存的响应是否预先压缩一份 gzip
+     */
+    @Value("${area.response.gzip:true}")
+    private boolean gzipEnabled;
+
+    /**
+     * 每类响应缓存最多占用的字节数
+     */
+    @Value("${area.response.cache.maximum-weight:16777216}")
+    private long cacheMaximumWeight;
+
+    /**
+     * 响应缓存写入多久之后在后台重新生成（分钟）
+     */
+    @Value("${area.response.cache.refresh-minutes:10}")
+    private long cacheRefreshMinutes;
+
+    private JsonResponseCache<String> provinceCache;
+    private JsonResponseCache<Integer> chainCache;
+    private JsonResponseCache<LevelKey<Integer>> parentCache;
+    private JsonResponseCache<LevelKey<String>> codeCache;
+
+    public AreaResponseCache(IAreaService areaService, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.areaService = areaService;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    private void initialize() {
+        // 每次生成只读取一次快照，版本和数据取自同一个快照
+        this.provinceCache = newResponseCache("provinces", key -> {
+            AreaSnapshot snapshot = areaService.getSnapshot();
+            CustomerJsonSerializer jsonSerializer = new CustomerJsonSerializer();
+            jsonSerializer.filter(AreaVO.class, false, null, PROVINCE_EXCLUDES);
+            return serialize(snapshot.getVersion(), () -> jsonSerializer.toJson(ApiOut.newSuccessResponse(
+                    snapshot.getProvinces().stream().map(AreaVO::new).collect(Collectors.toList()))).getBytes(StandardCharsets.UTF_8));
+        });
+        this.chainCache = newResponseCache("chain", areaId -> {
+            AreaSnapshot snapshot = areaService.getSnapshot();
+            return serialize(snapshot.getVersion(), () -> objectMapper.writeValueAsBytes(ApiOut.newSuccessResponse(
+                    areaService.findChain(snapshot, areaId).stream().map(AreaVO::new).collect(Collectors.toList()))));
+        });
+        this.parentCache = newResponseCache("parent", key -> {
+            AreaSnapshot snapshot = areaService.getSnapshot();
+            return serialize(snapshot.getVersion(), () -> objectMapper.writeValueAsBytes(ApiOut.newSuccessResponse(
+                    areaService.findTreeByParent(snapshot, key.getId(), key.getLevel()))));
+        });
+        this.codeCache = newResponseCache("code", key -> {
+            AreaSnapshot snapshot = areaService.getSnapshot();
+            return serialize(snapshot.getVersion(), () -> objectMapper.writeValueAsBytes(ApiOut.newSuccessResponse(
+                    areaService.findTreeByCityCode(snapshot, key.getId(), key.getLevel()))));
+        });
+    }
+
+    /**
+     * @return 所有省份
+     */
+    public CachedJsonResponse getProvinces() {
+        return provinceCache.get(PROVINCES_KEY);
+    }
+
+    /**
+     * @param areaId 区域ID
+     * @return 区域链
+     */
+    public CachedJsonResponse getChain(Integer areaId) {
+        return chainCache.get(areaId);
+    }
+
+    /**
+     * @param parentId 上级ID
+     * @param level    归一后的级别，0 表示全部
+     * @return 上级及其下级组成的树
+     */
+    public CachedJsonResponse getByParent(Integer parentId, int level) {
+        return parentCache.get(new LevelKey<>(parentId, level));
+    }
+
+    /**
+     * @param cityCode 区号
+     * @param level    归一后的级别，0 表示全部
+     * @return 区号相同的区域组成的树
+     */
+    public CachedJsonResponse getByCityCode(String cityCode, int level) {
+        return codeCache.get(new LevelKey<>(cityCode, level));
+    }
+
+    /**
+     * 预先生成省份列表，以及各省、各市的下级树响应，启动完成后由预热任务调用
+     *
+     * @return 生成的响应数量
+     */
+    public int warmUp() {
+        AreaSnapshot snapshot = areaService.getSnapshot();
+        getProvinces();
+
+        int count = 1;
+        for (Area province : snapshot.getProvinces()) {
+            getByParent(province.getId(), 0);
+            count++;
+            for (Area city : snapshot.getChildren(province.getId())) {
+                getByParent(city.getId(), 0);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 区域数据加载完成后在后台重新生成已缓存的响应，包括收到其他实例通知后的加载
+     */
+    @EventListener
+    public void onAreaRefreshed(AreaRefreshedEvent event) {
+        provinceCache.refreshAll();
+        chainCache.refreshAll();
+        parentCache.refreshAll();
+        codeCache.refreshAll();
+    }
+
+
+    private <K> JsonResponseCache<K> newResponseCache(String name, CacheLoader<K, CachedJsonResponse> loader) {
+        return new JsonResponseCache<>(name, cacheMaximumWeight, cacheRefreshMinutes, meterRegistry, areaService::getVersion, loader);
+    }
+
+    /**
+     * 生成序列化好的响应，只在缓存未命中或刷新时调用
+     */
+    private CachedJsonResponse serialize(long version, Callable<byte[]> serializer) {
+        try {
+            return new CachedJsonResponse(version, serializer.call(), gzipEnabled);
+        } catch (SystemException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new SystemException("序列化城市数据失败", ex);
+        }
+    }
+
+    /**
+     * 按上级或区号查询时的缓存键
+     */
+    @lombok.Value
+    private static class LevelKey<T> {
+        private T id;
+        private int level;
+    }
+}
@@ -0,0 +1,88 @@
+package chuan.study.cloud.web.json;
+
+import chuan.study.cloud.exception.SystemException;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 序列化好的 JSON 响应
+ * <p>
+ * 数据不变时反复返回同一份 UTF-8 字节，不再经过对象映射；可选地预先压缩一份 gzip，
+ * 客户端支持时直接返回压缩后的字节，容器看到 Content-Encoding 后也不会再次压缩。
+ *
+ * @author Jiang Chuan
+ * @version 1.0.0
+ * @since 2019-08-28
+ */
+public final class CachedJsonResponse {
+    /**
+     * 小于该长度的响应压缩收益不大，不生成 gzip
+     */
+    private static final int MIN_GZIP_LENGTH = 1024;
+
+    private final long version;
+    private final byte[] json;
+    private final byte[] gzip;
+
+    /**
+     * @param version 生成响应时的数据版本
+     * @param json    UTF-8 编码的 JSON
+     * @param gzip    是否预先压缩
+     */
+    public CachedJsonResponse(long version, byte[] json, boolean gzip) {
+        this.version = version;
+        this.json = json;
+        this.gzip = gzip && json.length >= MIN_GZIP_LENGTH ? compress(json) : null;
+    }
+
+    /**
+     * @return 生成响应时的数据版本
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return 缓存占用的字节数
+     */
+    public int length() {
+        return json.length + (null == gzip ? 0 : gzip.length);
+    }
+
+    /**
+     * 根据请求的 Accept-Encoding 返回原始或压缩后的字节
+     *
+     * @param webRequest 当前请求
+     * @return 响应
+     */
+    public ResponseEntity<byte[]> toResponseEntity(WebRequest webRequest) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON_UTF8);
+        if (null == gzip) {
+            return builder.body(json);
+        }
+
+        builder.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (StringUtils.containsIgnoreCase(webRequest.getHeader(HttpHeaders.ACCEPT_ENCODING), "gzip")) {
+            return builder.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(gzip);
+        }
+        return builder.body(json);
+    }
+
+
+    private static byte[] compress(byte[] content) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(content.length / 4);
+        try (GZIPOutputStream gzipOutput = new GZIPOutputStream(output)) {
+            gzipOutput.write(content);
+        } catch (IOException ex) {
+            throw new SystemException("压缩响应数据失败", ex);
+        }
+        return output.toByteArray();
+    }
+}
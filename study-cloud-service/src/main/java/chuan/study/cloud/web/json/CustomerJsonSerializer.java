@@ -41,7 +41,7 @@ public class CustomerJsonSerializer {
         objectMapper.addMixIn(clz, propertyFilter.getClass());
     }
 
-    String toJson(Object object) throws JsonProcessingException {
+    public String toJson(Object object) throws JsonProcessingException {
         objectMapper.setFilterProvider(propertyFilter);
         return objectMapper.writeValueAsString(object);
     }
@@ -0,0 +1,93 @@
+package chuan.study.cloud.web.json;
+
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * 序列化好的 JSON 响应缓存
+ * <p>
+ * 同一个键同时未命中时只生成一次，其他请求等待同一个 {@link CompletableFuture}，等待的请求数记录在
+ * {@code area.response.coalesced} 中；缓存按响应的字节数限制大小，写入一段时间后在后台重新生成，
+ * 命中率等统计通过 Micrometer 输出。
+ * <p>
+ * 数据刷新时如果某个键正在生成，Caffeine 会忽略对它的刷新，生成的可能是旧版本的响应；
+ * 因此每次读取都比较响应的版本和当前数据版本，不一致时在后台重新生成，期间仍返回旧的响应。
+ *
+ * @author Jiang Chuan
+ * @version 1.0.0
+ * @since 2019-08-28
+ */
+public final class JsonResponseCache<K> {
+    private final AsyncLoadingCache<K, CachedJsonResponse> cache;
+    private final Counter coalesced;
+    private final LongSupplier currentVersion;
+
+    /**
+     * @param name           缓存名称，指标中为 cache=area.{name}
+     * @param maximumWeight  最多占用的字节数
+     * @param refreshMinutes 写入多久之后在后台重新生成（分钟）
+     * @param meterRegistry  指标注册
+     * @param currentVersion 当前的数据版本
+     * @param loader         生成响应，响应的版本应取自生成时使用的数据
+     */
+    public JsonResponseCache(String name, long maximumWeight, long refreshMinutes, MeterRegistry meterRegistry,
+                             LongSupplier currentVersion, CacheLoader<K, CachedJsonResponse> loader) {
+        this.currentVersion = currentVersion;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumWeight)
+                .<K, CachedJsonResponse>weigher((key, response) -> response.length())
+                .refreshAfterWrite(refreshMinutes, TimeUnit.MINUTES)
+                .recordStats()
+                .buildAsync(loader);
+        this.coalesced = Counter.builder("area.response.coalesced")
+                .description("等待其他请求生成缓存的次数")
+                .tag("cache", "area." + name)
+                .register(meterRegistry);
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), "area." + name);
+    }
+
+    /**
+     * 获取响应，未命中时等待生成完成；响应的版本与当前数据版本不一致时在后台重新生成，本次仍返回该响应
+     *
+     * @param key 缓存键
+     * @return 响应
+     */
+    public CachedJsonResponse get(K key) {
+        CompletableFuture<CachedJsonResponse> loading = cache.getIfPresent(key);
+        if (null != loading && !loading.isDone()) {
+            coalesced.increment();
+        }
+
+        CachedJsonResponse response;
+        try {
+            response = cache.get(key).join();
+        } catch (CompletionException ex) {
+            // 还原生成时的业务异常，由全局异常处理返回对应的错误码
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        }
+
+        if (response.getVersion() != currentVersion.getAsLong()) {
+            cache.synchronous().refresh(key);
+        }
+        return response;
+    }
+
+    /**
+     * 在后台重新生成所有已缓存的响应，生成完成前仍返回旧的响应
+     */
+    public void refreshAll() {
+        cache.synchronous().asMap().keySet().forEach(cache.synchronous()::refresh);
+    }
+}
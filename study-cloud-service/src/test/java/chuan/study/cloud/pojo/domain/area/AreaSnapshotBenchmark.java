@@ -0,0 +1,231 @@
+package chuan.study.cloud.pojo.domain.area;
+
+import chuan.study.cloud.pojo.model.Area;
+import chuan.study.cloud.util.IntHashIndex;
+import com.google.common.collect.ImmutableList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按ID、按上级查询区域的基准测试，只比较快照中的这两个索引：
+ * 原来的 HashMap&lt;Integer, Area&gt; + HashMap&lt;Integer, List&lt;Area&gt;&gt;，
+ * 与按ID排序的 Area[] + {@link IntHashIndex} + 下级下标数组（childOffsets / children，构建方式与 {@link AreaSnapshot} 相同）
+ * <p>
+ * 通过 {@link #main(String[])} 运行，运行前先用 JOL 输出两种结构占用的堆内存，
+ * 两者共用的 Area 对象（包括其中的字符串）单独列出，不计入索引。
+ *
+ * @author Jiang Chuan
+ * @version 1.0.0
+ * @since 2019-08-28
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AreaSnapshotBenchmark {
+    private static final int PROVINCES = 34;
+    private static final int CITIES = 12;
+    private static final int DISTRICTS = 10;
+    private static final int LOOKUPS = 1024;
+
+    private HashIndexes hashIndexes;
+    private PrimitiveIndexes primitiveIndexes;
+    private int[] ids;
+    private int[] parentIds;
+
+    @Setup
+    public void setUp() {
+        List<Area> areas = createAreas();
+        this.hashIndexes = new HashIndexes(areas);
+        this.primitiveIndexes = new PrimitiveIndexes(areas);
+
+        Random random = new Random(42);
+        this.ids = new int[LOOKUPS];
+        this.parentIds = new int[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            Area area = areas.get(random.nextInt(areas.size()));
+            ids[i] = area.getId();
+            parentIds[i] = area.getParentId();
+        }
+    }
+
+    @Benchmark
+    public void hashMapGetArea(Blackhole blackhole) {
+        for (int id : ids) {
+            blackhole.consume(hashIndexes.getArea(id));
+        }
+    }
+
+    @Benchmark
+    public void intIndexGetArea(Blackhole blackhole) {
+        for (int id : ids) {
+            blackhole.consume(primitiveIndexes.getArea(id));
+        }
+    }
+
+    @Benchmark
+    public void hashMapGetChildren(Blackhole blackhole) {
+        for (int parentId : parentIds) {
+            for (Area area : hashIndexes.getChildren(parentId)) {
+                blackhole.consume(area);
+            }
+        }
+    }
+
+    @Benchmark
+    public void childOffsetsGetChildren(Blackhole blackhole) {
+        for (int parentId : parentIds) {
+            primitiveIndexes.forEachChild(parentId, blackhole);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        List<Area> areas = createAreas();
+        GraphLayout areaLayout = GraphLayout.parseInstance(areas.toArray());
+        HashIndexes hashIndexes = new HashIndexes(areas);
+        PrimitiveIndexes primitiveIndexes = new PrimitiveIndexes(areas);
+        System.out.printf("区域数量: %d，Area 对象: %d 字节%n", areas.size(), areaLayout.totalSize());
+        System.out.printf("HashMap<Integer, Area> + HashMap<Integer, List<Area>>: %d 字节%n",
+                GraphLayout.parseInstance(hashIndexes.byId, hashIndexes.byParent).subtract(areaLayout).totalSize());
+        System.out.printf("Area[] + IntHashIndex + childOffsets + children: %d 字节%n",
+                GraphLayout.parseInstance(primitiveIndexes.areas, primitiveIndexes.idIndex,
+                        primitiveIndexes.childOffsets, primitiveIndexes.children).subtract(areaLayout).totalSize());
+
+        new Runner(new OptionsBuilder().include(AreaSnapshotBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    /**
+     * 生成与全国行政区划规模相近的三级区域，ID按行政区划代码的规则编排
+     */
+    private static List<Area> createAreas() {
+        List<Area> areas = new ArrayList<>();
+        for (int p = 1; p <= PROVINCES; p++) {
+            int provinceId = (10 + p) * 10000;
+            areas.add(createArea(provinceId, 0, 1, "省份" + p));
+            for (int c = 1; c <= CITIES; c++) {
+                int cityId = provinceId + c * 100;
+                areas.add(createArea(cityId, provinceId, 2, "城市" + p + "-" + c));
+                for (int d = 1; d <= DISTRICTS; d++) {
+                    areas.add(createArea(cityId + d, cityId, 3, "区县" + p + "-" + c + "-" + d));
+                }
+            }
+        }
+        return areas;
+    }
+
+    private static Area createArea(int id, int parentId, int level, String name) {
+        Area area = new Area();
+        area.setId(id);
+        area.setParentId(parentId);
+        area.setLevel(level);
+        area.setName(name);
+        area.setMergedName(name);
+        area.setCityCode(String.format("0%03d", id / 100 % 1000));
+        area.setZipCode(String.valueOf(id));
+        return area;
+    }
+
+    /**
+     * 原来的索引
+     */
+    private static final class HashIndexes {
+        private final Map<Integer, Area> byId;
+        private final Map<Integer, List<Area>> byParent = new HashMap<>();
+
+        private HashIndexes(List<Area> areas) {
+            this.byId = new HashMap<>(areas.size());
+            for (Area area : areas) {
+                byId.put(area.getId(), area);
+                if (area.getParentId() > 0) {
+                    byParent.computeIfAbsent(area.getParentId(), k -> new ArrayList<>()).add(area);
+                }
+            }
+        }
+
+        private Area getArea(int id) {
+            return byId.get(id);
+        }
+
+        private List<Area> getChildren(int parentId) {
+            return byParent.getOrDefault(parentId, ImmutableList.of());
+        }
+    }
+
+    /**
+     * 基本类型ID索引和下级下标数组
+     */
+    private static final class PrimitiveIndexes {
+        private final Area[] areas;
+        private final IntHashIndex idIndex;
+        private final int[] childOffsets;
+        private final int[] children;
+
+        private PrimitiveIndexes(List<Area> areaList) {
+            this.areas = areaList.toArray(new Area[0]);
+            Arrays.sort(areas, (one, two) -> Integer.compare(one.getId(), two.getId()));
+            int count = areas.length;
+            this.idIndex = new IntHashIndex(count);
+            for (int i = 0; i < count; i++) {
+                idIndex.put(areas[i].getId(), i);
+            }
+
+            int[] parents = new int[count];
+            int[] offsets = new int[count + 1];
+            for (int i = 0; i < count; i++) {
+                parents[i] = areas[i].getParentId() > 0 ? idIndex.get(areas[i].getParentId()) : IntHashIndex.NOT_FOUND;
+                if (parents[i] != IntHashIndex.NOT_FOUND) {
+                    offsets[parents[i] + 1]++;
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                offsets[i + 1] += offsets[i];
+            }
+            int[] cursors = Arrays.copyOf(offsets, count);
+            int[] childArray = new int[offsets[count]];
+            for (int i = 0; i < count; i++) {
+                if (parents[i] != IntHashIndex.NOT_FOUND) {
+                    childArray[cursors[parents[i]]++] = i;
+                }
+            }
+            this.childOffsets = offsets;
+            this.children = childArray;
+        }
+
+        private Area getArea(int id) {
+            int position = idIndex.get(id);
+            return position == IntHashIndex.NOT_FOUND ? null : areas[position];
+        }
+
+        private void forEachChild(int parentId, Blackhole blackhole) {
+            int position = idIndex.get(parentId);
+            if (position != IntHashIndex.NOT_FOUND) {
+                for (int i = childOffsets[position]; i < childOffsets[position + 1]; i++) {
+                    blackhole.consume(areas[children[i]]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package chuan.study.cloud.task;
+
+import chuan.study.cloud.common.Constants;
+import chuan.study.cloud.pojo.domain.area.AreaRefreshMessage;
+import chuan.study.cloud.service.IAreaService;
+import com.alibaba.fastjson.JSON;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.autoconfigure.kafka.KafkaAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.ContainerTestUtils;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 通过内嵌的 Kafka 验证区域刷新通知的接收：合并短时间内的通知、忽略自己发出的通知和版本相同的通知
+ * <p>
+ * 接收器中保存着等待合并的通知，每个测试之后重建上下文（包括内嵌的 Kafka），测试之间互不影响
+ *
+ * @author Jiang Chuan
+ * @version 1.0.0
+ * @since 2019-08-28
+ */
+@RunWith(SpringRunner.class)
+@EmbeddedKafka(partitions = 1, topics = Constants.KAFKA_AREA_REFRESHED_TOPIC_NAME)
+@SpringBootTest(classes = AreaRefreshReceiverTest.TestConfiguration.class, properties = {
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.consumer.auto-offset-reset=earliest",
+        "area.refresh.debounce-millis=500",
+        "area.refresh.group-id=area-refresh-test"
+})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class AreaRefreshReceiverTest {
+    private static final String OTHER_INSTANCE_ID = "other-instance";
+    private static final long CURRENT_VERSION = 1L;
+    private static final long NEW_VERSION = 2L;
+
+    @MockBean
+    private IAreaService areaService;
+
+    @Autowired
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    @Autowired
+    private KafkaListenerEndpointRegistry registry;
+
+    @Before
+    public void setUp() throws Exception {
+        when(areaService.getVersion()).thenReturn(CURRENT_VERSION);
+        for (MessageListenerContainer container : registry.getListenerContainers()) {
+            ContainerTestUtils.waitForAssignment(container, 1);
+        }
+    }
+
+    @Test
+    public void mergesNotificationsWithinDebounce() throws Exception {
+        send(new AreaRefreshMessage(OTHER_INSTANCE_ID, NEW_VERSION, false));
+        send(new AreaRefreshMessage(OTHER_INSTANCE_ID, NEW_VERSION, true));
+
+        verify(areaService, timeout(10_000)).reload(true);
+        verify(areaService, after(1_000).never()).reload(false);
+    }
+
+    @Test
+    public void ignoresOwnNotifications() throws Exception {
+        send(new AreaRefreshMessage(Constants.INSTANCE_ID, NEW_VERSION, true));
+        send(new AreaRefreshMessage(OTHER_INSTANCE_ID, NEW_VERSION, false));
+
+        verify(areaService, timeout(10_000)).reload(false);
+        verify(areaService, never()).reload(true);
+    }
+
+    @Test
+    public void ignoresNotificationsForCurrentVersion() throws Exception {
+        send(new AreaRefreshMessage(OTHER_INSTANCE_ID, CURRENT_VERSION, true));
+        verify(areaService, after(2_000).never()).reload(anyBoolean());
+    }
+
+    private void send(AreaRefreshMessage message) throws Exception {
+        kafkaTemplate.send(Constants.KAFKA_AREA_REFRESHED_TOPIC_NAME, message.getInstanceId(), JSON.toJSONString(message)).get();
+    }
+
+    @Configuration
+    @ImportAutoConfiguration({PropertyPlaceholderAutoConfiguration.class, KafkaAutoConfiguration.class})
+    @Import(AreaRefreshReceiver.class)
+    static class TestConfiguration {
+    }
+}
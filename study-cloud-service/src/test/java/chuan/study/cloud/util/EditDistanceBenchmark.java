@@ -0,0 +1,98 @@
+package chuan.study.cloud.util;
+
+import com.google.common.io.Resources;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 地址匹配中编辑距离的基准测试：每个查询与 area-names.txt 中所有的省、市、区县名称比较，
+ * 分别使用原来的二维数组实现、不设上限的两行实现，以及按当前最佳结果设置上限的两行实现（与匹配区域时的用法相同）
+ * <p>
+ * 查询为去掉最后一个字的名称，如“杭州市”查询“杭州”。通过 {@link #main(String[])} 运行。
+ *
+ * @author Jiang Chuan
+ * @version 1.0.0
+ * @since 2019-08-28
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EditDistanceBenchmark {
+    private static final int QUERIES = 64;
+
+    /**
+     * 与匹配区域时相同，相似度超过该值才算匹配
+     */
+    private static final float MIN_RATIO = 0.5F;
+
+    private List<String> names;
+    private String[] queries;
+
+    @Setup
+    public void setUp() throws IOException {
+        this.names = Resources.readLines(Resources.getResource("area-names.txt"), StandardCharsets.UTF_8);
+        this.queries = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            String name = names.get(i * names.size() / QUERIES);
+            queries[i] = name.length() > 2 ? name.substring(0, name.length() - 1) : name;
+        }
+    }
+
+    @Benchmark
+    public void matrix(Blackhole blackhole) {
+        for (String query : queries) {
+            for (String name : names) {
+                blackhole.consume(MatrixEditDistance.getSimilarityRatio(name, query));
+            }
+        }
+    }
+
+    @Benchmark
+    public void twoRows(Blackhole blackhole) {
+        for (String query : queries) {
+            for (String name : names) {
+                blackhole.consume(StringUtils.getSimilarityRatio(name, query));
+            }
+        }
+    }
+
+    @Benchmark
+    public void bounded(Blackhole blackhole) {
+        for (String query : queries) {
+            float matchedRatio = MIN_RATIO;
+            for (String name : names) {
+                int length = Math.max(name.length(), query.length());
+                int maxDistance = (int) Math.ceil((1 - matchedRatio) * length);
+                int distance = StringUtils.getEditDistance(name, query, maxDistance);
+                if (distance <= maxDistance) {
+                    matchedRatio = Math.max(matchedRatio, 1 - (float) distance / length);
+                }
+            }
+            blackhole.consume(matchedRatio);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(EditDistanceBenchmark.class.getSimpleName()).build()).run();
+    }
+}
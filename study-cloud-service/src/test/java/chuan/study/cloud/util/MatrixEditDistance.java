@@ -0,0 +1,58 @@
+package chuan.study.cloud.util;
+
+/**
+ * 原来使用完整二维数组计算编辑距离的实现，作为 {@link StringUtils#getEditDistance(String, String, int)} 的对照
+ *
+ * @author Jiang Chuan
+ * @version 1.0.0
+ * @since 2019-08-28
+ */
+final class MatrixEditDistance {
+    private MatrixEditDistance() {
+    }
+
+    static float getSimilarityRatio(String str, String target) {
+        return 1 - (float) compareString(str, target) / Math.max(str.length(), target.length());
+    }
+
+    static int compareString(String str, String target) {
+        int d[][];
+        int n = str.length(), m = target.length();
+        int i, j, temp;
+        char ch1, ch2;
+        if (n == 0) {
+            return m;
+        }
+
+        if (m == 0) {
+            return n;
+        }
+
+        d = new int[n + 1][m + 1];
+        for (i = 0; i <= n; i++) {
+            d[i][0] = i;
+        }
+
+        for (j = 0; j <= m; j++) {
+            d[0][j] = j;
+        }
+
+        for (i = 1; i <= n; i++) {
+            ch1 = str.charAt(i - 1);
+            for (j = 1; j <= m; j++) {
+                ch2 = target.charAt(j - 1);
+                if (ch1 == ch2 || ch1 == ch2 + 32 || ch1 + 32 == ch2) {
+                    temp = 0;
+                } else {
+                    temp = 1;
+                }
+                d[i][j] = min(d[i - 1][j] + 1, d[i][j - 1] + 1, d[i - 1][j - 1] + temp);
+            }
+        }
+        return d[n][m];
+    }
+
+    private static int min(int one, int two, int three) {
+        return (one = one < two ? one : two) < three ? one : three;
+    }
+}
@@ -0,0 +1,103 @@
+package chuan.study.cloud.util;
+
+import com.google.common.io.Resources;
+import net.sourceforge.pinyin4j.PinyinHelper;
+import net.sourceforge.pinyin4j.format.HanyuPinyinCaseType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinOutputFormat;
+import net.sourceforge.pinyin4j.format.HanyuPinyinToneType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * 区域名称转拼音的基准测试：{@link StringUtils#chineseToPinyin(String, boolean)} 查表转换，
+ * 与原来每次创建格式化对象、逐字调用 pinyin4j 的实现对比
+ * <p>
+ * 名称取自 area-names.txt 中的省、市、区县，通过 {@link #main(String[])} 运行。
+ *
+ * @author Jiang Chuan
+ * @version 1.0.0
+ * @since 2019-08-28
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PinyinBenchmark {
+    @Param({"false", "true"})
+    private boolean firstCharOnly;
+
+    private List<String> names;
+
+    @Setup
+    public void setUp() throws IOException {
+        this.names = Resources.readLines(Resources.getResource("area-names.txt"), StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public void table(Blackhole blackhole) {
+        for (String name : names) {
+            blackhole.consume(StringUtils.chineseToPinyin(name, firstCharOnly));
+        }
+    }
+
+    @Benchmark
+    public void pinyin4j(Blackhole blackhole) {
+        for (String name : names) {
+            blackhole.consume(chineseToPinyin(name, firstCharOnly));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PinyinBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    /**
+     * 原来的实现，只去掉了转换失败时的日志
+     */
+    private static String chineseToPinyin(String chinese, boolean firstCharOnly) {
+        if (StringUtils.isBlank(chinese)) {
+            return StringUtils.EMPTY;
+        }
+
+        char[] chars = chinese.toCharArray();
+        HanyuPinyinOutputFormat formatter = new HanyuPinyinOutputFormat();
+        formatter.setCaseType(HanyuPinyinCaseType.LOWERCASE);
+        formatter.setToneType(HanyuPinyinToneType.WITHOUT_TONE);
+
+        StringBuilder pinyinBuilder = new StringBuilder();
+        IntStream.range(0, chars.length).forEach(idx -> {
+            if (chars[idx] > 128) {
+                try {
+                    String pinyin = PinyinHelper.toHanyuPinyinStringArray(chars[idx], formatter)[0];
+                    pinyinBuilder.append(firstCharOnly ? pinyin.charAt(0) : pinyin);
+                } catch (Exception ignored) {
+                    // 与原来一样跳过无法转换的字符
+                }
+            } else {
+                pinyinBuilder.append(chars[idx]);
+            }
+        });
+        return pinyinBuilder.toString();
+    }
+}
@@ -0,0 +1,66 @@
+package chuan.study.cloud.util;
+
+import com.google.common.io.Resources;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 随机比较 {@link StringUtils#getEditDistance(String, String, int)} 与原来的二维数组实现，
+ * 字符集包含大小写字母以及相差 32 的其他字符（原来的实现同样视为相同）
+ *
+ * @author Jiang Chuan
+ * @version 1.0.0
+ * @since 2019-08-28
+ */
+public class StringUtilsTest {
+    private static final String ALPHABET = "aAbBzZ@`1Q 杭州市区县省";
+    private static final int ROUNDS = 20000;
+
+    private final Random random = new Random(20190828L);
+
+    @Test
+    public void editDistanceMatchesMatrixImplementation() {
+        for (int round = 0; round < ROUNDS; round++) {
+            // 超过 32 个字符时会扩大线程内复用的缓冲区
+            String str = randomString(random.nextInt(40));
+            String target = randomString(random.nextInt(40));
+            assertDistance(str, target);
+        }
+    }
+
+    @Test
+    public void editDistanceMatchesMatrixImplementationOnAreaNames() throws IOException {
+        List<String> names = Resources.readLines(Resources.getResource("area-names.txt"), StandardCharsets.UTF_8);
+        for (int round = 0; round < ROUNDS; round++) {
+            String str = names.get(random.nextInt(names.size()));
+            String target = names.get(random.nextInt(names.size()));
+            assertDistance(str.substring(0, 1 + random.nextInt(str.length())), target);
+        }
+    }
+
+    private void assertDistance(String str, String target) {
+        int expected = MatrixEditDistance.compareString(str, target);
+        String message = str + " => " + target;
+        assertEquals(message, expected, StringUtils.getEditDistance(str, target, Integer.MAX_VALUE));
+        assertEquals(message, MatrixEditDistance.getSimilarityRatio(str, target), StringUtils.getSimilarityRatio(str, target), 0F);
+
+        // 超过最大距离时返回 maxDistance + 1
+        int maxDistance = random.nextInt(Math.max(str.length(), target.length()) + 2);
+        assertEquals(message + " <= " + maxDistance, Math.min(expected, maxDistance + 1),
+                StringUtils.getEditDistance(str, target, maxDistance));
+    }
+
+    private String randomString(int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return builder.toString();
+    }
+}